@@ -0,0 +1,113 @@
+package csp.robot.benchmarks;
+
+import csp.model.Constraint;
+import csp.model.Variable;
+import csp.robot.algorithms.AlgorithmArcConsistency4;
+import csp.robot.constraints.AdjacencyConstraint;
+import csp.robot.constraints.EnergyConstraint;
+import csp.robot.constraints.GridAdjacencyConstraint;
+import csp.robot.constraints.RestrictedCellsConstraint;
+import csp.robot.models.RobotGridCsp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Constraint checks against a solved path and AC-4 over the adjacency constraints of a grid.
+ * Grids without a path have nothing to check against and skip the check benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConstraintBenchmarks {
+    @Param({"default", "complex", "arc4", "scaled=10", "scaled=25", "scaled=50"})
+    public String grid;
+
+    private Map<Variable, Object> path;
+    private Variable last;
+    private Constraint adjacency;
+    private Constraint energy;
+    private Constraint restricted;
+    private Constraint gridAdjacency;
+    private List<Constraint> binaryConstraints;
+    private List<Variable> variables;
+    private Map<Variable, Set<Object>> domains;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RobotGridCsp robotGridCsp = Grids.create(grid);
+        path = robotGridCsp.solveBacktracking(null, null);
+        if (path == null) {
+            throw new IllegalStateException("Grid has no path to check: " + grid);
+        }
+        List<Variable> assigned = new ArrayList<>(path.keySet());
+        last = assigned.get(assigned.size() - 1);
+        adjacency = new AdjacencyConstraint(assigned.get(0), assigned.get(Math.min(1, assigned.size() - 1)));
+        energy = new EnergyConstraint(robotGridCsp.getEnergyLimit());
+        restricted = new RestrictedCellsConstraint(robotGridCsp.getRestrictedCells());
+        gridAdjacency = new GridAdjacencyConstraint(robotGridCsp.getRegistry());
+        binaryConstraints = new GridAdjacencyConstraint(robotGridCsp.getRegistry()).toBinaryConstraints();
+        variables = new ArrayList<>(robotGridCsp.getRegistry().getVariables());
+    }
+
+    // AC-4 prunes the domains it is given, so every invocation starts from full ones
+    @Setup(Level.Invocation)
+    public void resetDomains() {
+        domains = new HashMap<>();
+        for (Variable var : variables) {
+            domains.put(var, new HashSet<>(var.getDomain()));
+        }
+    }
+
+    @Benchmark
+    public boolean adjacencyCheck() {
+        return adjacency.isSatisfied(path);
+    }
+
+    @Benchmark
+    public boolean energyCheck() {
+        return energy.isSatisfied(path);
+    }
+
+    @Benchmark
+    public boolean restrictedCellsCheck() {
+        return restricted.isSatisfied(path);
+    }
+
+    @Benchmark
+    public boolean gridAdjacencyCheck() {
+        return gridAdjacency.isSatisfied(path);
+    }
+
+    @Benchmark
+    public boolean gridAdjacencyIncrementalCheck() {
+        return gridAdjacency.isSatisfied(path, last);
+    }
+
+    @Benchmark
+    public void arcConsistency4(Blackhole blackhole) {
+        new AlgorithmArcConsistency4(domains, binaryConstraints).enforceArcConsistency();
+        blackhole.consume(domains);
+    }
+}
@@ -0,0 +1,33 @@
+package csp.robot.benchmarks;
+
+import csp.robot.models.RobotGridCsp;
+import csp.robot.models.RobotGridCspFactory;
+
+/**
+ * The grids of the JMH benchmarks by parameter name: the factory configurations of {@link RobotGridCspFactory}
+ * and "scaled=N" for its scaled grid of size N.
+ */
+final class Grids {
+    private static final String SCALED = "scaled=";
+
+    private Grids() {
+    }
+
+    static RobotGridCsp create(String name) {
+        switch (name) {
+            case "default":
+                return RobotGridCspFactory.getDefaultRobotGrid();
+            case "complex":
+                return RobotGridCspFactory.getComplexRobotGrid();
+            case "noPath":
+                return RobotGridCspFactory.createRobotGridWithNoPathSolution();
+            case "arc4":
+                return RobotGridCspFactory.getArc4RobotGridConfiguration();
+            default:
+                if (name.startsWith(SCALED)) {
+                    return RobotGridCspFactory.getScaledRobotGrid(Integer.parseInt(name.substring(SCALED.length())));
+                }
+                throw new IllegalArgumentException("Unknown grid: " + name);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package csp.robot.benchmarks;
+
+import csp.model.SearchLimits;
+import csp.robot.models.RobotGridCsp;
+import csp.robot.models.strategies.RobotNavigationLookaheadStrategy;
+import csp.robot.models.strategies.RobotNavigationTrackAndAdjust;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model construction and every solve path of {@link RobotGridCsp}. A search starts from the grid's initial
+ * assignment and clears the transposition table, so one grid per trial serves every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SolveBenchmarks {
+    @Param({"default", "complex", "noPath", "arc4", "scaled=10", "scaled=25", "scaled=50"})
+    public String grid;
+
+    private RobotGridCsp robotGridCsp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        robotGridCsp = Grids.create(grid);
+    }
+
+    @Benchmark
+    public RobotGridCsp construction() {
+        return Grids.create(grid);
+    }
+
+    @Benchmark
+    public void baseline(Blackhole blackhole) {
+        blackhole.consume(robotGridCsp.solveBacktracking(null, null));
+    }
+
+    @Benchmark
+    public void lookahead(Blackhole blackhole) {
+        blackhole.consume(robotGridCsp.solveBacktracking(
+                new RobotNavigationLookaheadStrategy(robotGridCsp.getEnergyLimit()), null));
+    }
+
+    @Benchmark
+    public void trackAndAdjust(Blackhole blackhole) {
+        blackhole.consume(robotGridCsp.solveBacktracking(null, new RobotNavigationTrackAndAdjust(robotGridCsp)));
+    }
+
+    @Benchmark
+    public void arc4(Blackhole blackhole) {
+        blackhole.consume(robotGridCsp.solveWithArc4Algorithm());
+    }
+
+    @Benchmark
+    public void nodeConsistency(Blackhole blackhole) {
+        blackhole.consume(robotGridCsp.solveWithNodeConsistency());
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        blackhole.consume(robotGridCsp.solveCompiled());
+    }
+
+    @Benchmark
+    public void minimumEnergy(Blackhole blackhole) {
+        blackhole.consume(robotGridCsp.solveMinimumEnergy());
+    }
+
+    @Benchmark
+    public void propagation(Blackhole blackhole) {
+        blackhole.consume(robotGridCsp.solveWithPropagation(SearchLimits.none()));
+    }
+}
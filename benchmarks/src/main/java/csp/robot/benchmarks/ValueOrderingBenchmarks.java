@@ -0,0 +1,132 @@
+package csp.robot.benchmarks;
+
+import csp.model.CSP;
+import csp.model.Constraint;
+import csp.model.PropagationEngine;
+import csp.model.SearchLimits;
+import csp.model.SolveResult;
+import csp.model.TableConstraint;
+import csp.model.TablePropagator;
+import csp.model.Variable;
+import csp.robot.models.RobotGridCsp;
+import csp.robot.models.strategies.TargetDistanceValueOrdering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Value ordering on a search that branches. The robot grid's cell variables have a single value each, so the
+ * ordering never has a choice there; here a walk of WALK_STEPS steps is searched instead, Step_i ranging over
+ * every free cell and table propagators keeping consecutive steps adjacent, so after each step the next one has
+ * up to four values left to order. The walk starts at (0, 0) and stops once it has visited every target.
+ * Searches are capped at NODE_BUDGET nodes, the unordered walk runs into it on the larger grids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ValueOrderingBenchmarks {
+    private static final int WALK_STEPS = 40;
+    private static final long NODE_BUDGET = 100_000;
+    private static final int[][] MOVES = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    @Param({"default", "arc4", "scaled=10"})
+    public String grid;
+
+    @Param({"none", "target-distance"})
+    public String ordering;
+
+    private CSP walk;
+    private Variable start;
+    private int[] origin;
+    private Predicate<Map<Variable, Object>> allTargetsVisited;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RobotGridCsp robotGridCsp = Grids.create(grid);
+        int rows = robotGridCsp.getRows();
+        int cols = robotGridCsp.getCols();
+        boolean[][] restricted = robotGridCsp.getRestrictedCells();
+        // one array per cell, shared by every step, so the tables match values by identity
+        int[][] cells = new int[rows * cols][];
+        List<Object> freeCells = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (!restricted[row][col]) {
+                    cells[row * cols + col] = new int[]{row, col};
+                    freeCells.add(cells[row * cols + col]);
+                }
+            }
+        }
+        List<Object[]> moves = new ArrayList<>();
+        for (Object value : freeCells) {
+            int[] from = (int[]) value;
+            for (int[] move : MOVES) {
+                int row = from[0] + move[0];
+                int col = from[1] + move[1];
+                if (row >= 0 && row < rows && col >= 0 && col < cols && cells[row * cols + col] != null) {
+                    moves.add(new Object[]{from, cells[row * cols + col]});
+                }
+            }
+        }
+        List<Variable> steps = new ArrayList<>();
+        for (int i = 0; i < WALK_STEPS; i++) {
+            Variable step = new Variable("Step_" + i);
+            step.setDomain(freeCells);
+            steps.add(step);
+        }
+        List<Constraint> constraints = new ArrayList<>();
+        PropagationEngine engine = new PropagationEngine();
+        for (int i = 0; i + 1 < WALK_STEPS; i++) {
+            TableConstraint adjacent = new TableConstraint(steps.get(i), steps.get(i + 1), moves);
+            constraints.add(adjacent);
+            engine.addPropagator(new TablePropagator(adjacent));
+        }
+        walk = new CSP(steps, constraints);
+        walk.setPropagationEngine(engine);
+        if (ordering.equals("target-distance")) {
+            walk.setValueOrderingHeuristic(new TargetDistanceValueOrdering(robotGridCsp));
+        }
+        start = steps.get(0);
+        origin = cells[0];
+        int[][] targets = robotGridCsp.getTargets();
+        allTargetsVisited = assignment -> {
+            boolean[] visited = new boolean[rows * cols];
+            for (Object value : assignment.values()) {
+                int[] cell = (int[]) value;
+                visited[cell[0] * cols + cell[1]] = true;
+            }
+            for (int[] target : targets) {
+                if (!visited[target[0] * cols + target[1]]) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    @Benchmark
+    public SolveResult walk() {
+        Map<Variable, Object> assignment = new LinkedHashMap<>();
+        assignment.put(start, origin);
+        return walk.backtrackingSearch(assignment, allTargetsVisited, null, SearchLimits.none().withNodeBudget(NODE_BUDGET));
+    }
+}
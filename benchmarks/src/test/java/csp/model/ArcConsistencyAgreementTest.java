@@ -0,0 +1,164 @@
+package csp.model;
+
+import csp.robot.algorithms.AlgorithmArcConsistency4;
+import csp.robot.algorithms.BitwiseArcConsistency;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AC-4, AC-3bit and the {@link TablePropagator}s of a {@link PropagationEngine} must reach the same fixpoint on
+ * random binary CSPs. Domains run past one 64-bit word, so the word indexing and the residues of the bitset
+ * propagators are exercised; assigning a value and undoing it checks the engine's trail against AC-4 as well.
+ */
+class ArcConsistencyAgreementTest {
+    private static final int PROBLEMS = 500;
+
+    @Test
+    void fixpointsAgree() {
+        for (long seed = 0; seed < PROBLEMS; seed++) {
+            Problem problem = new Problem(new Random(seed));
+            Map<Variable, Set<Object>> ac4 = problem.fullDomains();
+            new AlgorithmArcConsistency4(ac4, problem.constraints).enforceArcConsistency();
+            boolean wipedOut = ac4.values().stream().anyMatch(Set::isEmpty);
+
+            Map<Variable, Set<Object>> bitwise = problem.fullDomains();
+            boolean bitwiseConsistent = new BitwiseArcConsistency(bitwise, problem.constraints).enforceArcConsistency();
+
+            PropagationEngine engine = problem.engine();
+            boolean engineConsistent = engine.reset(problem.variables, new HashMap<>());
+
+            String context = "seed " + seed;
+            if (wipedOut) {
+                assertFalse(bitwiseConsistent, context);
+                assertFalse(engineConsistent, context);
+                continue;
+            }
+            assertTrue(bitwiseConsistent, context);
+            assertTrue(engineConsistent, context);
+            assertEquals(ac4, bitwise, context);
+            assertEquals(ac4, problem.domainsOf(engine), context);
+        }
+    }
+
+    @Test
+    void assignmentsPropagateAndUndo() {
+        for (long seed = 0; seed < PROBLEMS; seed++) {
+            Random random = new Random(seed);
+            Problem problem = new Problem(random);
+            PropagationEngine engine = problem.engine();
+            if (!engine.reset(problem.variables, new HashMap<>())) {
+                continue;
+            }
+            Map<Variable, Set<Object>> fixpoint = problem.domainsOf(engine);
+            Variable variable = problem.variables.get(random.nextInt(problem.variables.size()));
+            List<Object> live = new ArrayList<>(fixpoint.get(variable));
+            Object value = live.get(random.nextInt(live.size()));
+
+            Map<Variable, Set<Object>> ac4 = copy(fixpoint);
+            ac4.put(variable, new LinkedHashSet<>(List.of(value)));
+            new AlgorithmArcConsistency4(ac4, problem.constraints).enforceArcConsistency();
+            boolean wipedOut = ac4.values().stream().anyMatch(Set::isEmpty);
+
+            String context = "seed " + seed + ", " + variable.getName() + " = " + value;
+            engine.pushLevel();
+            boolean consistent = engine.assign(variable, value);
+            assertEquals(!wipedOut, consistent, context);
+            if (consistent) {
+                assertEquals(ac4, problem.domainsOf(engine), context);
+            }
+            engine.popLevel();
+            assertEquals(fixpoint, problem.domainsOf(engine), context + ", undone");
+        }
+    }
+
+    private static Map<Variable, Set<Object>> copy(Map<Variable, Set<Object>> domains) {
+        Map<Variable, Set<Object>> copy = new HashMap<>();
+        for (Map.Entry<Variable, Set<Object>> entry : domains.entrySet()) {
+            copy.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    // Two to eight variables with up to 150 integer values, random pairs constrained by random tables
+    private static final class Problem {
+        private final List<Variable> variables = new ArrayList<>();
+        private final List<Constraint> constraints = new ArrayList<>();
+
+        Problem(Random random) {
+            int count = 2 + random.nextInt(7);
+            for (int v = 0; v < count; v++) {
+                Variable variable = new Variable("X" + v);
+                int size = 1 + random.nextInt(150);
+                List<Object> domain = new ArrayList<>();
+                for (int value = 0; value < size; value++) {
+                    domain.add(value);
+                }
+                variable.setDomain(domain);
+                variables.add(variable);
+            }
+            double density = random.nextDouble();
+            for (int x = 0; x < count; x++) {
+                for (int y = x + 1; y < count; y++) {
+                    if (random.nextDouble() < density) {
+                        constraints.add(table(variables.get(x), variables.get(y), random));
+                    }
+                }
+            }
+        }
+
+        private static TableConstraint table(Variable x, Variable y, Random random) {
+            // loose tables keep most problems consistent, tight ones wipe domains out
+            double tightness = random.nextDouble() * 0.2 + (random.nextBoolean() ? 0.0 : 0.8);
+            List<Object[]> pairs = new ArrayList<>();
+            for (Object xValue : x.getDomain()) {
+                for (Object yValue : y.getDomain()) {
+                    if (random.nextDouble() >= tightness) {
+                        pairs.add(new Object[]{xValue, yValue});
+                    }
+                }
+            }
+            return new TableConstraint(x, y, pairs);
+        }
+
+        Map<Variable, Set<Object>> fullDomains() {
+            Map<Variable, Set<Object>> domains = new HashMap<>();
+            for (Variable variable : variables) {
+                domains.put(variable, new LinkedHashSet<>(variable.getDomain()));
+            }
+            return domains;
+        }
+
+        PropagationEngine engine() {
+            PropagationEngine engine = new PropagationEngine();
+            for (Constraint constraint : constraints) {
+                engine.addPropagator(new TablePropagator((TableConstraint) constraint));
+            }
+            return engine;
+        }
+
+        Map<Variable, Set<Object>> domainsOf(PropagationEngine engine) {
+            Map<Variable, Set<Object>> domains = new HashMap<>();
+            for (Variable variable : variables) {
+                int id = engine.idOf(variable);
+                IntDomain domain = engine.getDomain(id);
+                Set<Object> live = new LinkedHashSet<>();
+                for (int k = 0; k < domain.size(); k++) {
+                    live.add(engine.getValue(id, domain.get(k)));
+                }
+                domains.put(variable, live);
+            }
+            return domains;
+        }
+    }
+}
@@ -1,7 +1,15 @@
 import csp.robot.RunnerCspRobot;
+import csp.robot.batch.BatchSolver;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("batch")) {
+            BatchSolver.runFromCommandLine(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         RunnerCspRobot.run();
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package csp.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("csp.ArcConsistency")
+@Label("CSP Arc Consistency")
+@Category("CSP")
+@Description("One arc consistency preprocessing pass")
+class ArcConsistencyFlightRecorderEvent extends Event {
+    @Label("Arcs")
+    long arcs;
+
+    @Label("Pruned Values")
+    long prunedValues;
+}
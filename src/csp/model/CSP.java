@@ -1,20 +1,69 @@
 package csp.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class CSP {
     private List<Variable> variables;
     private List<Constraint> constraints;
+    // Watch lists: constraints indexed by the variables they involve
+    private final Map<Variable, List<Constraint>> constraintsByVariable;
+    // Constraints with an empty scope, checked after every assignment
+    private final List<Constraint> globalConstraints;
     private LookaheadStrategy lookaheadStrategy;
     private TrackAndAdjustStrategy trackAndAdjustStrategy;
+    private VariableOrderingHeuristic variableOrderingHeuristic;
+    private ValueOrderingHeuristic valueOrderingHeuristic;
+    private CancellationToken cancellationToken;
+    private PropagationEngine propagationEngine;
+    // Kept as an array so that a search without listeners only pays for a length check
+    private SearchListener[] searchListeners = new SearchListener[0];
+    // States the search failed below, and the Zobrist hash of the current assignment kept up to date for it
+    private TranspositionTable transpositionTable;
+    private StateHasher stateHasher;
+    private int lastCheckCount;
+    private int lastSelectedIndex;
 
     public CSP(List<Variable> variables, List<Constraint> constraints) {
         this.variables = variables;
         this.constraints = constraints;
+        this.constraintsByVariable = new HashMap<>();
+        this.globalConstraints = new ArrayList<>();
+        indexConstraints();
+    }
+
+    private void indexConstraints() {
+        for (Constraint constraint : constraints) {
+            List<Variable> scope = constraint.getVariables();
+            if (scope.isEmpty()) {
+                globalConstraints.add(constraint);
+                continue;
+            }
+            for (Variable var : scope) {
+                List<Constraint> watched = constraintsByVariable.computeIfAbsent(var, k -> new ArrayList<>());
+                //a variable may appear more than once in a scope, watch the constraint only once
+                if (watched.isEmpty() || watched.get(watched.size() - 1) != constraint) {
+                    watched.add(constraint);
+                }
+            }
+        }
     }
 
     public void setLookaheadStrategy(LookaheadStrategy lookaheadStrategy) {
@@ -25,67 +74,575 @@ public class CSP {
         this.trackAndAdjustStrategy = trackAndAdjustStrategy;
     }
 
+    public void setVariableOrderingHeuristic(VariableOrderingHeuristic variableOrderingHeuristic) {
+        this.variableOrderingHeuristic = variableOrderingHeuristic;
+    }
+
+    public VariableOrderingHeuristic getVariableOrderingHeuristic() {
+        return variableOrderingHeuristic;
+    }
+
+    public ValueOrderingHeuristic getValueOrderingHeuristic() {
+        return valueOrderingHeuristic;
+    }
+
+    public void setValueOrderingHeuristic(ValueOrderingHeuristic valueOrderingHeuristic) {
+        this.valueOrderingHeuristic = valueOrderingHeuristic;
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    // Propagates every assignment through the engine's propagators, null turns propagation off.
+    // The engine is reset at the start of each search and only serves one search at a time.
+    public void setPropagationEngine(PropagationEngine propagationEngine) {
+        this.propagationEngine = propagationEngine;
+    }
+
+    public PropagationEngine getPropagationEngine() {
+        return propagationEngine;
+    }
+
+    // Skips the states already proven to fail and records new failures; null turns the table off.
+    // Sound as long as what the search does below a state depends only on the assigned values.
+    public void setTranspositionTable(TranspositionTable transpositionTable, StateHasher stateHasher) {
+        this.transpositionTable = transpositionTable;
+        this.stateHasher = Objects.nonNull(transpositionTable) ? Objects.requireNonNull(stateHasher) : null;
+    }
+
+    public void addSearchListener(SearchListener listener) {
+        Objects.requireNonNull(listener);
+        SearchListener[] listeners = Arrays.copyOf(searchListeners, searchListeners.length + 1);
+        listeners[searchListeners.length] = listener;
+        searchListeners = listeners;
+    }
+
+    public void removeSearchListener(SearchListener listener) {
+        List<SearchListener> listeners = new ArrayList<>(Arrays.asList(searchListeners));
+        if (listeners.remove(listener)) {
+            searchListeners = listeners.toArray(new SearchListener[0]);
+        }
+    }
+
     // Backtracking method for CSP
     public boolean backtrackingSearch(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition, Map<Variable, Set<Object>> domains) {
-        //stop if stopping condition was met
-        if (stoppingCondition.test(assignment)) {
+        return solve(assignment, stoppingCondition, domains, false, SearchLimits.none()).isSolved();
+    }
+
+    // Same search within the limits. An interrupted search leaves the assignment as it was given,
+    // the result holds a copy of the partial assignment it stopped at.
+    public SolveResult backtrackingSearch(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition,
+                                          Map<Variable, Set<Object>> domains, SearchLimits limits) {
+        return solve(assignment, stoppingCondition, domains, false, limits);
+    }
+
+    // Same search, trying the values left in the given domains (e.g. after arc consistency) instead of the variables' own domains
+    public boolean backtrackingSearchForArc4(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition, Map<Variable, Set<Object>> domains) {
+        return solve(assignment, stoppingCondition, domains, true, SearchLimits.none()).isSolved();
+    }
+
+    public SolveResult backtrackingSearchForArc4(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition,
+                                                 Map<Variable, Set<Object>> domains, SearchLimits limits) {
+        return solve(assignment, stoppingCondition, domains, true, limits);
+    }
+
+    private SolveResult solve(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition,
+                              Map<Variable, Set<Object>> domains, boolean valuesFromDomains, SearchLimits limits) {
+        long start = System.nanoTime();
+        initializeHeuristics(assignment);
+        fireSearchStart(assignment);
+        SearchCursor cursor = new SearchCursor(assignment, stoppingCondition, domains, valuesFromDomains);
+        cursor.limits = limits;
+        boolean solved = cursor.advance();
+        fireSearchEnd(solved);
+        SolveResult.Status status = solved ? SolveResult.Status.SOLVED
+                : Objects.nonNull(cursor.interruption) ? cursor.interruption : SolveResult.Status.UNSATISFIABLE;
+        Map<Variable, Object> reached = solved ? assignment : cursor.partial;
+        return new SolveResult(status, reached, cursor.nodes, cursor.failures, System.nanoTime() - start, null);
+    }
+
+    // Repairs a previous solution after the problem changed: its assignments are replayed in order on top of the given
+    // assignment for as long as they are still consistent, and the search goes on from that prefix. If no solution
+    // extends the prefix, the search starts over from the given assignment alone.
+    public boolean repairSearch(Map<Variable, Object> assignment, Map<Variable, Object> previousSolution,
+                                Predicate<Map<Variable, Object>> stoppingCondition, Map<Variable, Set<Object>> domains) {
+        Set<Variable> base = new HashSet<>(assignment.keySet());
+        for (Map.Entry<Variable, Object> entry : previousSolution.entrySet()) {
+            Variable variable = entry.getKey();
+            if (assignment.containsKey(variable)) {
+                continue;
+            }
+            assignment.put(variable, entry.getValue());
+            if (Objects.nonNull(findViolatedConstraint(assignment, variable))) {
+                assignment.remove(variable);
+                break;
+            }
+        }
+        if (assignment.size() > base.size() && backtrackingSearch(assignment, stoppingCondition, domains)) {
             return true;
         }
-        Variable unassigned = selectUnassignedVariable(assignment);
-        assert unassigned != null;
-        for (Object value : unassigned.getDomain()) {
-            if ((Objects.nonNull(lookaheadStrategy) && lookaheadStrategy.lookaheadCheck(this, unassigned, value, assignment))
-                    || (Objects.nonNull(trackAndAdjustStrategy) && trackAndAdjustStrategy.trackAndAdjustPaths(this,unassigned,value,assignment,domains))
-                    || (Objects.isNull(trackAndAdjustStrategy) && Objects.isNull(lookaheadStrategy))
-            ) {
-                if (isConsistent(assignment)) {
-                    assignment.put(unassigned, value);
-                    if (backtrackingSearch(assignment, stoppingCondition,domains)) {
-                        return true;
-                    }
-                    assignment.remove(unassigned); // Remove assignment on failure
+        if (isCancelled()) {
+            return false;
+        }
+        assignment.keySet().retainAll(base);
+        return backtrackingSearch(assignment, stoppingCondition, domains);
+    }
+
+    private void fireSearchStart(Map<Variable, Object> assignment) {
+        for (SearchListener listener : searchListeners) {
+            listener.onSearchStart(assignment);
+        }
+    }
+
+    private void fireSearchEnd(boolean solved) {
+        for (SearchListener listener : searchListeners) {
+            listener.onSearchEnd(solved);
+        }
+    }
+
+    // Lazily enumerates the solutions that extend the assignment, as immutable copies in the order the search finds
+    // them. The search is suspended between pulls, on the choice point stack, and the caller's map is left untouched.
+    // A solution is not extended further: the search moves on to the next value of its last variable.
+    public Iterator<Map<Variable, Object>> solutionIterator(Map<Variable, Object> assignment,
+                                                           Predicate<Map<Variable, Object>> stoppingCondition,
+                                                           Map<Variable, Set<Object>> domains) {
+        return new SolutionIterator(new LinkedHashMap<>(assignment), stoppingCondition, domains);
+    }
+
+    // Stream over solutionIterator, so limit(k) and short-circuiting operations stop the search early.
+    // It cannot be split, see SolutionSpliterator for parallel consumption.
+    public Stream<Map<Variable, Object>> solutions(Map<Variable, Object> assignment,
+                                                   Predicate<Map<Variable, Object>> stoppingCondition,
+                                                   Map<Variable, Set<Object>> domains) {
+        SolutionIterator iterator = new SolutionIterator(new LinkedHashMap<>(assignment), stoppingCondition, domains);
+        Spliterator<Map<Variable, Object>> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    // Branch and bound: the cheapest solution extending the assignment, or null if none costs less than the
+    // incumbent's bound. Solutions are enumerated as by solutions(), and a node is pruned once lowerBound reaches
+    // the cost of the best solution so far, so lowerBound must never exceed the cost of a solution extending it.
+    // The incumbent follows the progress and is proven optimal unless the search is cancelled.
+    public Map<Variable, Object> minimize(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition,
+                                         Map<Variable, Set<Object>> domains, ToIntFunction<Map<Variable, Object>> cost,
+                                         ToIntFunction<Map<Variable, Object>> lowerBound, Incumbent incumbent) {
+        Map<Variable, Object> current = new LinkedHashMap<>(assignment);
+        initializeHeuristics(current);
+        fireSearchStart(current);
+        SearchCursor cursor = new SearchCursor(current, stoppingCondition, domains, false);
+        cursor.lowerBound = lowerBound;
+        cursor.costBound = incumbent.getCost();
+        int rootBound = lowerBound.applyAsInt(current);
+        incumbent.raiseLowerBound(rootBound);
+        if (rootBound < cursor.costBound) {
+            while (cursor.advance()) {
+                int solutionCost = cost.applyAsInt(current);
+                if (solutionCost < cursor.costBound) {
+                    // incumbent tightening, later nodes have to beat this solution
+                    cursor.costBound = solutionCost;
+                    incumbent.improve(Collections.unmodifiableMap(new LinkedHashMap<>(current)), solutionCost);
                 }
             }
         }
-        return false;
+        if (!isCancelled()) {
+            incumbent.proveOptimal();
+        }
+        fireSearchEnd(incumbent.hasSolution());
+        return incumbent.getSolution();
     }
 
-    public boolean backtrackingSearchForArc4(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition, Map<Variable, Set<Object>> domains) {
-        if (stoppingCondition.test(assignment)) {
+    /**
+     * Iterative depth-first search: every assigned variable is a frame on an explicit choice point stack
+     * instead of a Java call frame, so the depth of the search is not bounded by the thread stack.
+     * One run of the search, advance() moves to the next solution and can be called again to resume
+     * after it, treating the solution as a dead end.
+     */
+    private final class SearchCursor {
+        private final Map<Variable, Object> assignment;
+        private final Predicate<Map<Variable, Object>> stoppingCondition;
+        private final Map<Variable, Set<Object>> domains;
+        private final boolean valuesFromDomains;
+        private ChoicePointStack stack;
+        private boolean started;
+        private boolean exhausted;
+        // the frames below this stack size still hold the values a returned solution was found with, so the
+        // nodes they stand for are not failures when their subtrees run out
+        private int solvedDepth;
+        // Zobrist hash of the assignment, kept per cursor so that live iterators on one CSP do not share it
+        private long stateHash;
+            // branch and bound, nodes whose bound reaches costBound are pruned
+        private ToIntFunction<Map<Variable, Object>> lowerBound;
+        private int costBound = Integer.MAX_VALUE;
+        private SearchLimits limits = SearchLimits.none();
+        private long steps;
+        private long nodes;
+        private long failures;
+        // why the search stopped early, with the assignment it was at
+        private SolveResult.Status interruption;
+        private Map<Variable, Object> partial;
+
+        SearchCursor(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition,
+                     Map<Variable, Set<Object>> domains, boolean valuesFromDomains) {
+            this.assignment = assignment;
+            this.stoppingCondition = stoppingCondition;
+            this.domains = domains;
+            this.valuesFromDomains = valuesFromDomains;
+        }
+
+        // Returns true with a solution in the assignment, or false once the search space is exhausted or cancelled
+        boolean advance() {
+            if (exhausted) {
+                return false;
+            }
+            if (!started) {
+                started = true;
+                if (interrupted()) {
+                    return exhaust();
+                }
+                if (Objects.nonNull(propagationEngine) && !propagationEngine.isConsistent()) {
+                    return exhaust(); // propagating the initial assignment wiped out a domain
+                }
+                //stop if stopping condition was met
+                if (stoppingCondition.test(assignment)) {
+                    return true;
+                }
+                Variable first = selectUnassignedVariable(assignment, 0);
+                if (first == null) {
+                    return exhaust(); // All variables are assigned
+                }
+                initializeStateHash();
+                stack = new ChoicePointStack(variables.size() + 1);
+                stack.push(first, orderValues(first, liveValues(first, valuesOf(first, domains, valuesFromDomains)), assignment), lastSelectedIndex);
+            } else {
+                if (Objects.isNull(stack) || stack.isEmpty()) {
+                    return exhaust(); // the solution was the initial assignment
+                }
+                backtrack(stack.topVariable());
+            }
+            while (!stack.isEmpty()) {
+                if (interrupted()) {
+                    unwind(assignment, stack);
+                    return exhaust();
+                }
+                Variable unassigned = stack.topVariable();
+                if (!stack.hasNextValue()) {
+                    // every value failed, backtrack into the parent choice point
+                    stack.pop();
+                    if (!stack.isEmpty()) {
+                        recordFailureBelow();
+                        backtrack(stack.topVariable()); // Remove assignment on failure
+                    }
+                    continue;
+                }
+                Object value = stack.nextValue();
+                solvedDepth = Math.min(solvedDepth, stack.size() - 1);
+                if (!descend(unassigned, value)) {
+                    failures++;
+                    continue;
+                }
+                nodes++;
+                if (Objects.nonNull(lowerBound) && lowerBound.applyAsInt(assignment) >= costBound) {
+                    failures++;
+                    backtrack(unassigned);
+                    continue;
+                }
+                if (stoppingCondition.test(assignment)) {
+                    solvedDepth = stack.size();
+                    return true;
+                }
+                if (isKnownFailure()) {
+                    failures++;
+                    backtrack(unassigned);
+                    continue;
+                }
+                Variable next = selectUnassignedVariable(assignment, stack.topOrder() + 1);
+                if (next == null) {
+                    failures++;
+                    recordFailureBelow();
+                    backtrack(unassigned);
+                    continue;
+                }
+                stack.push(next, orderValues(next, liveValues(next, valuesOf(next, domains, valuesFromDomains)), assignment), lastSelectedIndex);
+            }
+            return exhaust();
+        }
+
+        // Records the node of the top frame as failed, unless a solution was found below it. Branch and bound
+        // records nothing: a node cut by the cost bound can still hold solutions, the table outlives the search.
+        private void recordFailureBelow() {
+            if (Objects.nonNull(transpositionTable) && Objects.isNull(lowerBound) && stack.size() > solvedDepth) {
+                transpositionTable.recordFailure(stateHash, assignment.size());
+            }
+        }
+
+        private boolean isKnownFailure() {
+            return Objects.nonNull(transpositionTable) && transpositionTable.isFailed(stateHash);
+        }
+
+        private void initializeStateHash() {
+            stateHash = 0L;
+            if (Objects.nonNull(stateHasher)) {
+                for (Map.Entry<Variable, Object> entry : assignment.entrySet()) {
+                    stateHash ^= stateHasher.keyOf(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        private boolean descend(Variable variable, Object value) {
+            if (!tryAssign(assignment, variable, value, domains)) {
+                return false;
+            }
+            if (Objects.nonNull(stateHasher)) {
+                stateHash ^= stateHasher.keyOf(variable, value);
+            }
+            return true;
+        }
+
+        private void backtrack(Variable variable) {
+            if (Objects.nonNull(stateHasher)) {
+                stateHash ^= stateHasher.keyOf(variable, assignment.get(variable));
+            }
+            unassign(assignment, variable);
+        }
+
+        // Checked once per step, a step being one value tried or one backtrack
+        private boolean interrupted() {
+            if (isCancelled()) {
+                interruption = SolveResult.Status.CANCELLED;
+            } else {
+                interruption = limits.check(steps++, nodes, failures);
+            }
+            if (Objects.isNull(interruption)) {
+                return false;
+            }
+            partial = new LinkedHashMap<>(assignment);
             return true;
         }
-        Variable unassigned = selectUnassignedVariable(assignment);
-        if (unassigned == null) {
+
+        private boolean exhaust() {
+            exhausted = true;
             return false;
         }
-        Set<Object> domain = domains.get(unassigned);
-        for (Object value : domain) {
-            if (Objects.isNull(lookaheadStrategy) ||
-                    lookaheadStrategy.lookaheadCheck(this, unassigned, value, assignment)) {
-                if (isConsistent(assignment)) {
-                    assignment.put(unassigned, value);
-                    if (backtrackingSearch(assignment, stoppingCondition,domains)) {
-                        return true;
-                    }
-                    assignment.remove(unassigned);
+    }
+
+    private final class SolutionIterator implements Iterator<Map<Variable, Object>> {
+        private final SearchCursor cursor;
+        private final Map<Variable, Object> assignment;
+        private boolean started;
+        private boolean ended;
+        private boolean found;
+        // null until the next solution has been looked for
+        private Boolean ready;
+
+        SolutionIterator(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition,
+                         Map<Variable, Set<Object>> domains) {
+            this.assignment = assignment;
+            this.cursor = new SearchCursor(assignment, stoppingCondition, domains, false);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (ready == null) {
+                if (!started) {
+                    started = true;
+                    initializeHeuristics(assignment);
+                    fireSearchStart(assignment);
+                }
+                ready = !ended && cursor.advance();
+                if (ready) {
+                    found = true;
+                } else {
+                    close();
                 }
             }
+            return ready;
+        }
+
+        @Override
+        public Map<Variable, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = null;
+            return Collections.unmodifiableMap(new LinkedHashMap<>(assignment));
+        }
+
+        // Ends the search for the listeners, once
+        void close() {
+            if (started && !ended) {
+                ended = true;
+                fireSearchEnd(found);
+            }
         }
-        return false; // No solution found on this path
     }
 
+    private Collection<Object> valuesOf(Variable variable, Map<Variable, Set<Object>> domains, boolean valuesFromDomains) {
+        if (valuesFromDomains && Objects.nonNull(domains) && domains.containsKey(variable)) {
+            return domains.get(variable);
+        }
+        return variable.getDomain();
+    }
 
-    private boolean isConsistent(Map<Variable, Object> assignment) {
-        for (Constraint constraint : constraints) {
-            if (!constraint.isSatisfied(assignment)) {
-                return false;
+    // The values propagation has not removed. A frame's values are read when it is pushed, and the domains are back
+    // to that state whenever the frame tries its next value, so filtering once is enough.
+    private Collection<Object> liveValues(Variable variable, Collection<Object> values) {
+        if (Objects.isNull(propagationEngine) || !propagationEngine.isReduced(variable)) {
+            return values;
+        }
+        List<Object> live = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (propagationEngine.contains(variable, value)) {
+                live.add(value);
+            }
+        }
+        return live;
+    }
+
+    // Undoes the assignment of every frame on the stack, the top frame's value included
+    private void unwind(Map<Variable, Object> assignment, ChoicePointStack stack) {
+        while (!stack.isEmpty()) {
+            unassign(assignment, stack.topVariable());
+            stack.pop();
+        }
+    }
+
+    // Runs the strategies and the consistency check for assigning the value to the variable.
+    // Returns true with the value assigned, or false with the assignment left as it was.
+    boolean tryAssign(Map<Variable, Object> assignment, Variable variable, Object value, Map<Variable, Set<Object>> domains) {
+        if ((Objects.nonNull(lookaheadStrategy) && lookaheadStrategy.lookaheadCheck(this, variable, value, assignment))
+                || (Objects.nonNull(trackAndAdjustStrategy) && trackAndAdjustStrategy.trackAndAdjustPaths(this, variable, value, assignment, domains))
+                || (Objects.isNull(trackAndAdjustStrategy) && Objects.isNull(lookaheadStrategy))
+        ) {
+            assign(assignment, variable, value);
+            if (isConsistent(assignment, variable) && propagates(variable, value)) {
+                for (SearchListener listener : searchListeners) {
+                    listener.onAssign(variable, value);
+                }
+                return true;
+            }
+            retract(assignment, variable);
+            return false;
+        }
+        for (SearchListener listener : searchListeners) {
+            listener.onStrategyRejection(variable, value);
+        }
+        return false;
+    }
+
+    private boolean propagates(Variable variable, Object value) {
+        return Objects.isNull(propagationEngine) || propagationEngine.assign(variable, value);
+    }
+
+    boolean isCancelled() {
+        return Objects.nonNull(cancellationToken) && cancellationToken.isCancelled();
+    }
+
+    Iterable<Object> orderValues(Variable variable, Collection<Object> values, Map<Variable, Object> assignment) {
+        if (Objects.isNull(valueOrderingHeuristic)) {
+            return values;
+        }
+        return valueOrderingHeuristic.orderValues(this, variable, values, assignment);
+    }
+
+    void initializeHeuristics(Map<Variable, Object> assignment) {
+        if (Objects.nonNull(variableOrderingHeuristic)) {
+            variableOrderingHeuristic.initialize(this, assignment);
+        }
+        if (Objects.nonNull(propagationEngine)) {
+            propagationEngine.reset(variables, assignment);
+        }
+    }
+
+    private void assign(Map<Variable, Object> assignment, Variable variable, Object value) {
+        assignment.put(variable, value);
+        if (Objects.nonNull(variableOrderingHeuristic)) {
+            variableOrderingHeuristic.onAssign(variable);
+        }
+        if (Objects.nonNull(propagationEngine)) {
+            propagationEngine.pushLevel();
+        }
+    }
+
+    // Undoes an assignment made by tryAssign
+    void unassign(Map<Variable, Object> assignment, Variable variable) {
+        retract(assignment, variable);
+        for (SearchListener listener : searchListeners) {
+            listener.onUnassign(variable);
+        }
+    }
+
+    private void retract(Map<Variable, Object> assignment, Variable variable) {
+        assignment.remove(variable);
+        if (Objects.nonNull(variableOrderingHeuristic)) {
+            variableOrderingHeuristic.onUnassign(variable);
+        }
+        if (Objects.nonNull(propagationEngine)) {
+            propagationEngine.popLevel(); // undoes what propagating the assignment removed
+        }
+    }
+
+    // Checks only the constraints that can be affected by assigning the given variable:
+    // the ones watching it and the global ones. Assumes the rest of the assignment was already consistent.
+    private boolean isConsistent(Map<Variable, Object> assignment, Variable assigned) {
+        Constraint violated = findViolatedConstraint(assignment, assigned);
+        for (SearchListener listener : searchListeners) {
+            listener.onConsistencyCheck(assigned, lastCheckCount, violated);
+        }
+        if (Objects.nonNull(violated) && Objects.nonNull(variableOrderingHeuristic)) {
+            variableOrderingHeuristic.onConflict(violated);
+        }
+        return Objects.isNull(violated);
+    }
+
+    // Returns the first watched or global constraint the assignment violates, lastCheckCount holds how many were checked
+    private Constraint findViolatedConstraint(Map<Variable, Object> assignment, Variable assigned) {
+        int checked = 0;
+        Constraint violated = null;
+        for (Constraint constraint : getConstraints(assigned)) {
+            checked++;
+            if (!constraint.isSatisfied(assignment, assigned)) {
+                violated = constraint;
+                break;
+            }
+        }
+        if (Objects.isNull(violated)) {
+            for (Constraint constraint : globalConstraints) {
+                checked++;
+                if (!constraint.isSatisfied(assignment, assigned)) {
+                    violated = constraint;
+                    break;
+                }
+            }
+        }
+        lastCheckCount = checked;
+        return violated;
+    }
+
+    // Without a heuristic the variables are taken in list order, and every variable before the one a frame holds
+    // stays assigned below that frame, so the scan for the next one starts right after it instead of at the front.
+    // lastSelectedIndex is left at the index of the selected variable, or -1 when the heuristic selected it.
+    private Variable selectUnassignedVariable(Map<Variable, Object> assignment, int from) {
+        lastSelectedIndex = -1;
+        if (Objects.nonNull(variableOrderingHeuristic)) {
+            return variableOrderingHeuristic.selectUnassignedVariable(assignment);
+        }
+        for (int i = Math.max(from, 0); i < variables.size(); i++) {
+            Variable var = variables.get(i);
+            if (!assignment.containsKey(var)) {
+                lastSelectedIndex = i;
+                return var;
             }
         }
-        return true;
+        return null; // All variables are assigned
     }
 
-    // Selects an unassigned variable
-    private Variable selectUnassignedVariable(Map<Variable, Object> assignment) {
+    // Selects an unassigned variable, through the ordering heuristic when one is set
+    Variable selectUnassignedVariable(Map<Variable, Object> assignment) {
+        if (Objects.nonNull(variableOrderingHeuristic)) {
+            return variableOrderingHeuristic.selectUnassignedVariable(assignment);
+        }
         for (Variable var : variables) {
             if (!assignment.containsKey(var)) {
                 return var;
@@ -94,6 +651,10 @@ public class CSP {
         return null; // All variables are assigned
     }
 
+    public CompiledCsp compile() {
+        return CompiledCsp.compile(this);
+    }
+
     public List<Variable> getVariables() {
         return variables;
     }
@@ -101,4 +662,13 @@ public class CSP {
     public List<Constraint> getConstraints() {
         return constraints;
     }
+
+    // Returns the non-global constraints involving the given variable
+    public List<Constraint> getConstraints(Variable variable) {
+        return constraintsByVariable.getOrDefault(variable, Collections.emptyList());
+    }
+
+    public List<Constraint> getGlobalConstraints() {
+        return globalConstraints;
+    }
 }
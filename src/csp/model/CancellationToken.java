@@ -0,0 +1,17 @@
+package csp.model;
+
+/**
+ * Cooperative cancellation flag shared between a caller and one or more searches.
+ * A search checks it at every node and gives up, returning no solution, once it is cancelled.
+ */
+public class CancellationToken {
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,83 @@
+package csp.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Explicit stack of choice points for the iterative search: the variable being assigned at each depth and
+ * how far its values have been tried. Random access value lists are walked by index, so pushing a frame does not
+ * allocate; other iterables keep their iterator. The arrays grow on demand, depth is only bounded by the heap.
+ */
+class ChoicePointStack {
+    private Variable[] variables;
+    // either a RandomAccess List walked by positions[i] or an Iterator
+    private Object[] values;
+    private int[] positions;
+    // index of the frame's variable in the CSP's variable list, or -1 when an ordering heuristic chose it
+    private int[] orders;
+    private int size;
+
+    ChoicePointStack(int capacity) {
+        // frames past the first few thousand are allocated as the search gets there
+        int initial = Math.min(Math.max(capacity, 16), 4096);
+        this.variables = new Variable[initial];
+        this.values = new Object[initial];
+        this.positions = new int[initial];
+        this.orders = new int[initial];
+    }
+
+    void push(Variable variable, Iterable<Object> candidates, int order) {
+        if (size == variables.length) {
+            int capacity = size * 2;
+            variables = Arrays.copyOf(variables, capacity);
+            values = Arrays.copyOf(values, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            orders = Arrays.copyOf(orders, capacity);
+        }
+        variables[size] = variable;
+        values[size] = candidates instanceof List && candidates instanceof RandomAccess ? candidates : candidates.iterator();
+        positions[size] = 0;
+        orders[size] = order;
+        size++;
+    }
+
+    void pop() {
+        size--;
+        variables[size] = null;
+        values[size] = null;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Variable topVariable() {
+        return variables[size - 1];
+    }
+
+    int topOrder() {
+        return orders[size - 1];
+    }
+
+    boolean hasNextValue() {
+        Object candidates = values[size - 1];
+        if (candidates instanceof Iterator) {
+            return ((Iterator<?>) candidates).hasNext();
+        }
+        return positions[size - 1] < ((List<?>) candidates).size();
+    }
+
+    Object nextValue() {
+        Object candidates = values[size - 1];
+        if (candidates instanceof Iterator) {
+            return ((Iterator<?>) candidates).next();
+        }
+        return ((List<?>) candidates).get(positions[size - 1]++);
+    }
+}
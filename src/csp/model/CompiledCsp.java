@@ -0,0 +1,270 @@
+package csp.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Integer-indexed form of a {@link CSP}. Variables become dense ids in the order of {@link CSP#getVariables()},
+ * values become indices into the variable's domain list and constraints are compiled through
+ * {@link Constraint#compile(CompiledCsp)}. Constraints without a compiled form are evaluated through a map view
+ * of the int assignment.
+ */
+public class CompiledCsp {
+    private final Variable[] variables;
+    private final Object[][] values;
+    private final Map<Variable, Integer> ids;
+    private final IntConstraint[] constraints;
+    // CSR watch lists: constraints of variable v are watchList[watchStart[v] .. watchStart[v + 1])
+    private final int[] watchStart;
+    private final int[] watchList;
+    private final int[] globalConstraints;
+
+    private CompiledCsp(CSP csp) {
+        List<Variable> cspVariables = csp.getVariables();
+        int n = cspVariables.size();
+        this.variables = new Variable[n];
+        this.values = new Object[n][];
+        this.ids = new HashMap<>(n * 2);
+        int id = 0;
+        for (Variable var : cspVariables) {
+            variables[id] = var;
+            values[id] = var.getDomain().toArray();
+            ids.put(var, id);
+            id++;
+        }
+
+        List<Constraint> cspConstraints = csp.getConstraints();
+        this.constraints = new IntConstraint[cspConstraints.size()];
+        int[] degree = new int[n];
+        int globals = 0;
+        for (int c = 0; c < constraints.length; c++) {
+            Constraint constraint = cspConstraints.get(c);
+            IntConstraint compiled = constraint.compile(this);
+            constraints[c] = compiled != null ? compiled : new MapBackedConstraint(constraint);
+            int[] scope = constraints[c].getScope();
+            if (scope.length == 0) {
+                globals++;
+            }
+            for (int var : scope) {
+                degree[var]++;
+            }
+        }
+
+        this.watchStart = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            watchStart[v + 1] = watchStart[v] + degree[v];
+        }
+        this.watchList = new int[watchStart[n]];
+        this.globalConstraints = new int[globals];
+        int[] fill = new int[n];
+        globals = 0;
+        for (int c = 0; c < constraints.length; c++) {
+            int[] scope = constraints[c].getScope();
+            if (scope.length == 0) {
+                globalConstraints[globals++] = c;
+            }
+            for (int var : scope) {
+                watchList[watchStart[var] + fill[var]++] = c;
+            }
+        }
+    }
+
+    public static CompiledCsp compile(CSP csp) {
+        return new CompiledCsp(csp);
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    public Variable getVariable(int id) {
+        return variables[id];
+    }
+
+    // Returns the compiled id of the variable or -1 if it is not part of the problem
+    public int idOf(Variable variable) {
+        Integer id = ids.get(variable);
+        return id == null ? -1 : id;
+    }
+
+    // Same as idOf, for compiling constraints whose variables must belong to the problem
+    public int requireId(Variable variable) {
+        int id = idOf(variable);
+        if (id < 0) {
+            throw new IllegalArgumentException("Constraint refers to an unknown variable: " + variable.getName());
+        }
+        return id;
+    }
+
+    public int getDomainSize(int var) {
+        return values[var].length;
+    }
+
+    public Object getValue(int var, int valueIndex) {
+        return values[var][valueIndex];
+    }
+
+    // Returns the index of the value in the variable's domain or -1 if it is not in it
+    public int valueIndexOf(int var, Object value) {
+        Object[] domain = values[var];
+        for (int i = 0; i < domain.length; i++) {
+            if (domain[i] == value || domain[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public IntDomain[] newDomains() {
+        IntDomain[] domains = new IntDomain[variables.length];
+        for (int v = 0; v < variables.length; v++) {
+            domains[v] = new IntDomain(values[v].length);
+        }
+        return domains;
+    }
+
+    public IntConstraint[] getConstraints() {
+        return constraints;
+    }
+
+    public boolean isConsistent(IntAssignment assignment, int assigned) {
+        for (int i = watchStart[assigned], end = watchStart[assigned + 1]; i < end; i++) {
+            if (!constraints[watchList[i]].isSatisfied(assignment, assigned)) {
+                return false;
+            }
+        }
+        for (int c : globalConstraints) {
+            if (!constraints[c].isSatisfied(assignment, assigned)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Converts a map assignment into an int assignment, keeping the iteration order of the map
+    public IntAssignment encode(Map<Variable, Object> assignment) {
+        IntAssignment encoded = new IntAssignment(variables.length);
+        for (Map.Entry<Variable, Object> entry : assignment.entrySet()) {
+            int var = idOf(entry.getKey());
+            int value = var < 0 ? -1 : valueIndexOf(var, entry.getValue());
+            if (value < 0) {
+                throw new IllegalArgumentException("Assignment is not part of the compiled problem: " + entry.getKey().getName());
+            }
+            encoded.assign(var, value);
+        }
+        return encoded;
+    }
+
+    // Converts an int assignment back into a map, in assignment order
+    public Map<Variable, Object> decode(IntAssignment assignment) {
+        Map<Variable, Object> decoded = new LinkedHashMap<>();
+        for (int i = 0; i < assignment.size(); i++) {
+            int var = assignment.variableAt(i);
+            decoded.put(variables[var], values[var][assignment.valueOf(var)]);
+        }
+        return decoded;
+    }
+
+    // Read-only map over an int assignment, used to evaluate constraints that have no compiled form
+    public Map<Variable, Object> asMap(IntAssignment assignment) {
+        return new AssignmentView(assignment);
+    }
+
+    private class AssignmentView extends AbstractMap<Variable, Object> {
+        private final IntAssignment assignment;
+
+        AssignmentView(IntAssignment assignment) {
+            this.assignment = assignment;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer var = ids.get(key);
+            if (var == null || !assignment.isAssigned(var)) {
+                return null;
+            }
+            return values[var][assignment.valueOf(var)];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Integer var = ids.get(key);
+            return var != null && assignment.isAssigned(var);
+        }
+
+        @Override
+        public int size() {
+            return assignment.size();
+        }
+
+        @Override
+        public Set<Entry<Variable, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Variable, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < assignment.size();
+                        }
+
+                        @Override
+                        public Entry<Variable, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int var = assignment.variableAt(index++);
+                            return new SimpleImmutableEntry<>(variables[var], values[var][assignment.valueOf(var)]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return assignment.size();
+                }
+            };
+        }
+    }
+
+    private class MapBackedConstraint implements IntConstraint {
+        private final Constraint constraint;
+        private final int[] scope;
+        // view over the assignment of the last check: a search checks one assignment throughout, so it is built once.
+        // Views are immutable, a search on another thread at worst builds its own.
+        private AssignmentView view;
+
+        MapBackedConstraint(Constraint constraint) {
+            this.constraint = constraint;
+            List<Variable> cspScope = constraint.getVariables();
+            this.scope = new int[cspScope.size()];
+            for (int i = 0; i < scope.length; i++) {
+                scope[i] = requireId(cspScope.get(i));
+            }
+        }
+
+        @Override
+        public boolean isSatisfied(IntAssignment assignment, int assigned) {
+            AssignmentView current = view;
+            if (current == null || current.assignment != assignment) {
+                current = new AssignmentView(assignment);
+                view = current;
+            }
+            return constraint.isSatisfied(current);
+        }
+
+        @Override
+        public int[] getScope() {
+            return scope;
+        }
+    }
+}
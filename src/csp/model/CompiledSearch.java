@@ -0,0 +1,80 @@
+package csp.model;
+
+import java.util.function.Predicate;
+
+/**
+ * Backtracking search over a {@link CompiledCsp}. The choice points live in preallocated int stacks and the
+ * assignment is an {@link IntAssignment}, so the search loop does not allocate.
+ * Variables are picked in id order, like {@link CSP#backtrackingSearch}.
+ */
+public class CompiledSearch {
+    private final CompiledCsp compiled;
+    private final IntDomain[] domains;
+    private final int[] stackVariable;
+    private final int[] stackPosition;
+
+    public CompiledSearch(CompiledCsp compiled) {
+        this(compiled, compiled.newDomains());
+    }
+
+    public CompiledSearch(CompiledCsp compiled, IntDomain[] domains) {
+        this.compiled = compiled;
+        this.domains = domains;
+        this.stackVariable = new int[compiled.getVariableCount() + 1];
+        this.stackPosition = new int[compiled.getVariableCount() + 1];
+    }
+
+    public boolean solve(IntAssignment assignment, Predicate<IntAssignment> stoppingCondition) {
+        if (stoppingCondition.test(assignment)) {
+            return true;
+        }
+        int root = assignment.size();
+        int first = nextUnassigned(assignment, 0);
+        if (first < 0) {
+            return false;
+        }
+        int depth = 0;
+        stackVariable[0] = first;
+        stackPosition[0] = 0;
+        while (depth >= 0) {
+            int var = stackVariable[depth];
+            IntDomain domain = domains[var];
+            boolean descended = false;
+            while (stackPosition[depth] < domain.size()) {
+                assignment.assign(var, domain.get(stackPosition[depth]++));
+                if (compiled.isConsistent(assignment, var)) {
+                    if (stoppingCondition.test(assignment)) {
+                        return true;
+                    }
+                    // every variable before var is assigned, so the next one can only come after it
+                    int next = nextUnassigned(assignment, var + 1);
+                    if (next >= 0) {
+                        depth++;
+                        stackVariable[depth] = next;
+                        stackPosition[depth] = 0;
+                        descended = true;
+                        break;
+                    }
+                }
+                assignment.unassignLast();
+            }
+            if (!descended) {
+                depth--;
+                if (depth >= 0) {
+                    assignment.unassignLast();
+                }
+            }
+        }
+        assignment.undoTo(root);
+        return false;
+    }
+
+    private int nextUnassigned(IntAssignment assignment, int from) {
+        for (int var = from; var < compiled.getVariableCount(); var++) {
+            if (!assignment.isAssigned(var)) {
+                return var;
+            }
+        }
+        return -1;
+    }
+}
@@ -6,6 +6,19 @@ import java.util.Map;
 public interface Constraint {
     boolean isSatisfied(Map<Variable, Object> assignment);
 
-    // Returns the list of variables involved in this constraint
+    // Checks the constraint right after the given variable was assigned, assuming the rest of the
+    // assignment was consistent before. Constraints that can check incrementally override this.
+    default boolean isSatisfied(Map<Variable, Object> assignment, Variable assigned) {
+        return isSatisfied(assignment);
+    }
+
+    // Returns the list of variables involved in this constraint.
+    // An empty list marks a global constraint, which is checked after every assignment.
     List<Variable> getVariables();
-}
\ No newline at end of file
+
+    // Returns the int-indexed form of this constraint for the given compiled problem,
+    // or null to have it evaluated through a map view of the compiled assignment
+    default IntConstraint compile(CompiledCsp compiled) {
+        return null;
+    }
+}
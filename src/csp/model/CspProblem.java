@@ -10,8 +10,14 @@ public interface CspProblem {
 
     public Map<Variable,Object> baselineBacktracking();
 
+    // Same search within a deadline, a node budget and a cancellation token
+    public SolveResult baselineBacktracking(SearchLimits limits);
+
     public Map<Variable,Object> lookaheadBacktracking();
 
     public Map<Variable,Object> trackAndAdjustBacktracking();
 
+    // Solves again after the problem changed, starting from what is still valid in the previous solution
+    public Map<Variable,Object> repair(Map<Variable,Object> previousSolution);
+
 }
@@ -0,0 +1,13 @@
+package csp.model;
+
+/**
+ * Changes of a variable a {@link Propagator} can subscribe to in a {@link PropagationEngine}.
+ */
+public enum DomainEvent {
+    // the search assigned the variable, or it was assigned in the initial assignment
+    ASSIGN,
+    // the lowest or highest live value index changed
+    BOUNDS,
+    // some value was removed from the domain
+    REMOVE
+}
@@ -0,0 +1,92 @@
+package csp.model;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Best solution found so far by a branch-and-bound search, with the lower bound proven for it. The search
+ * updates it as it runs, other threads may read it at any time to follow the progress and the optimality gap.
+ */
+public class Incumbent {
+    private final Consumer<Incumbent> onImprovement;
+    private Map<Variable, Object> solution;
+    // only solutions cheaper than this are accepted, the cost of the solution once there is one
+    private int cost;
+    private int lowerBound;
+    private boolean optimal;
+
+    public Incumbent() {
+        this(Integer.MAX_VALUE, null);
+    }
+
+    // Accepts only solutions costing less than costBound and calls onImprovement, if not null, after each one
+    public Incumbent(int costBound, Consumer<Incumbent> onImprovement) {
+        this.cost = costBound;
+        this.onImprovement = onImprovement;
+    }
+
+    // Called by the search with a cheaper solution
+    public void improve(Map<Variable, Object> solution, int cost) {
+        synchronized (this) {
+            if (cost >= this.cost) {
+                return;
+            }
+            this.solution = solution;
+            this.cost = cost;
+            this.lowerBound = Math.min(lowerBound, cost);
+        }
+        if (Objects.nonNull(onImprovement)) {
+            onImprovement.accept(this);
+        }
+    }
+
+    // Called by the search with a bound no solution can beat
+    public synchronized void raiseLowerBound(int lowerBound) {
+        this.lowerBound = Math.max(this.lowerBound, Math.min(lowerBound, cost));
+    }
+
+    // Called by the search once it is exhausted: the solution, or the absence of one below the bound, is optimal
+    public synchronized void proveOptimal() {
+        lowerBound = cost;
+        optimal = true;
+    }
+
+    public synchronized Map<Variable, Object> getSolution() {
+        return solution;
+    }
+
+    public synchronized boolean hasSolution() {
+        return Objects.nonNull(solution);
+    }
+
+    // The cost of the solution, or the bound solutions must stay under while there is none
+    public synchronized int getCost() {
+        return cost;
+    }
+
+    public synchronized int getLowerBound() {
+        return lowerBound;
+    }
+
+    public synchronized boolean isOptimal() {
+        return optimal;
+    }
+
+    // Relative distance between the solution and the lower bound, 0 once optimal and infinite without a solution
+    public synchronized double getGap() {
+        if (Objects.isNull(solution)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return cost == 0 ? 0.0 : (double) (cost - lowerBound) / cost;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (Objects.isNull(solution)) {
+            return "Incumbent{none, bound=" + cost + (optimal ? ", proven" : "") + "}";
+        }
+        return String.format("Incumbent{cost=%d, lowerBound=%d, gap=%.1f%%%s}", cost, lowerBound, 100 * getGap(),
+                optimal ? ", optimal" : "");
+    }
+}
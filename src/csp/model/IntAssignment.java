@@ -0,0 +1,61 @@
+package csp.model;
+
+import java.util.Arrays;
+
+/**
+ * Assignment over compiled variable ids. Values are value indices into the variable's compiled domain,
+ * and the order of assignment is kept on a trail so the search can undo without allocating.
+ */
+public class IntAssignment {
+    public static final int UNASSIGNED = -1;
+
+    private final int[] values;
+    private final int[] trail;
+    private int size;
+
+    public IntAssignment(int variableCount) {
+        this.values = new int[variableCount];
+        this.trail = new int[variableCount];
+        Arrays.fill(values, UNASSIGNED);
+    }
+
+    public void assign(int var, int value) {
+        values[var] = value;
+        trail[size++] = var;
+    }
+
+    // Undoes the most recent assignment and returns its variable
+    public int unassignLast() {
+        int var = trail[--size];
+        values[var] = UNASSIGNED;
+        return var;
+    }
+
+    // Undoes assignments until only the first mark ones are left
+    public void undoTo(int mark) {
+        while (size > mark) {
+            unassignLast();
+        }
+    }
+
+    public boolean isAssigned(int var) {
+        return values[var] != UNASSIGNED;
+    }
+
+    public int valueOf(int var) {
+        return values[var];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the variable assigned at the given trail position
+    public int variableAt(int index) {
+        return trail[index];
+    }
+
+    public int lastAssigned() {
+        return size == 0 ? UNASSIGNED : trail[size - 1];
+    }
+}
@@ -0,0 +1,10 @@
+package csp.model;
+
+public interface IntConstraint {
+    // Checks the constraint right after the given variable was assigned.
+    // The rest of the assignment is assumed to have been consistent before.
+    boolean isSatisfied(IntAssignment assignment, int assigned);
+
+    // Returns the compiled ids of the variables involved, an empty array marks a global constraint
+    int[] getScope();
+}
@@ -0,0 +1,60 @@
+package csp.model;
+
+/**
+ * Domain of a compiled variable, stored as a sparse set over value indices.
+ * Removed values are swapped past the end of the live prefix, so a removal can be undone
+ * by restoring a previously recorded size as long as restores happen in reverse order.
+ */
+public class IntDomain {
+    private final int[] values;
+    private final int[] positions;
+    private int size;
+
+    public IntDomain(int capacity) {
+        this.values = new int[capacity];
+        this.positions = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            values[i] = i;
+            positions[i] = i;
+        }
+        this.size = capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Returns the value stored at the given position of the live prefix
+    public int get(int index) {
+        return values[index];
+    }
+
+    public boolean contains(int value) {
+        return positions[value] < size;
+    }
+
+    public boolean remove(int value) {
+        int position = positions[value];
+        if (position >= size) {
+            return false;
+        }
+        int last = values[--size];
+        values[position] = last;
+        positions[last] = position;
+        values[size] = value;
+        positions[value] = size;
+        return true;
+    }
+
+    public void restoreSize(int size) {
+        this.size = size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+}
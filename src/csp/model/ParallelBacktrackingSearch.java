@@ -0,0 +1,108 @@
+package csp.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Backtracking search split across a fork/join pool. Nodes shallower than the split depth are expanded into one
+ * subtask per consistent value, each with its own copy of the assignment. Deeper subtrees are searched sequentially
+ * by {@link CSP#backtrackingSearch}. Idle workers steal pending subtrees, so uneven subtrees stay balanced.
+ * Every task gets its own CSP from the factory, so stateful strategies and heuristics are never shared,
+ * and the first solution found cancels every other task.
+ * The speedup comes from branching above the split depth: where every variable has a single value, as the cells
+ * of a robot grid do, each level yields one subtask and the search runs on one worker.
+ */
+public class ParallelBacktrackingSearch {
+    private final Supplier<CSP> cspFactory;
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    public ParallelBacktrackingSearch(Supplier<CSP> cspFactory, int splitDepth) {
+        this(cspFactory, ForkJoinPool.commonPool(), splitDepth);
+    }
+
+    public ParallelBacktrackingSearch(Supplier<CSP> cspFactory, ForkJoinPool pool, int splitDepth) {
+        this.cspFactory = cspFactory;
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    // Returns a solution extending the assignment, or null if there is none. The given assignment is not modified.
+    public Map<Variable, Object> search(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition, Map<Variable, Set<Object>> domains) {
+        Search search = new Search(stoppingCondition, domains);
+        pool.invoke(new SubtreeTask(search, new LinkedHashMap<>(assignment), 0));
+        return search.solution.get();
+    }
+
+    private static class Search {
+        final Predicate<Map<Variable, Object>> stoppingCondition;
+        final Map<Variable, Set<Object>> domains;
+        final CancellationToken cancellationToken = new CancellationToken();
+        final AtomicReference<Map<Variable, Object>> solution = new AtomicReference<>();
+
+        Search(Predicate<Map<Variable, Object>> stoppingCondition, Map<Variable, Set<Object>> domains) {
+            this.stoppingCondition = stoppingCondition;
+            this.domains = domains;
+        }
+
+        void found(Map<Variable, Object> assignment) {
+            if (solution.compareAndSet(null, assignment)) {
+                cancellationToken.cancel();
+            }
+        }
+    }
+
+    private class SubtreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final Map<Variable, Object> assignment;
+        private final int depth;
+
+        SubtreeTask(Search search, Map<Variable, Object> assignment, int depth) {
+            this.search = search;
+            this.assignment = assignment;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.cancellationToken.isCancelled()) {
+                return;
+            }
+            CSP csp = cspFactory.get();
+            csp.setCancellationToken(search.cancellationToken);
+            if (depth >= splitDepth) {
+                if (csp.backtrackingSearch(assignment, search.stoppingCondition, search.domains)) {
+                    search.found(assignment);
+                }
+                return;
+            }
+            if (search.stoppingCondition.test(assignment)) {
+                search.found(assignment);
+                return;
+            }
+            csp.initializeHeuristics(assignment);
+            Variable unassigned = csp.selectUnassignedVariable(assignment);
+            if (unassigned == null) {
+                return;
+            }
+            List<SubtreeTask> subtrees = new ArrayList<>();
+            for (Object value : csp.orderValues(unassigned, unassigned.getDomain(), assignment)) {
+                if (csp.tryAssign(assignment, unassigned, value, search.domains)) {
+                    subtrees.add(new SubtreeTask(search, new LinkedHashMap<>(assignment), depth + 1));
+                    csp.unassign(assignment, unassigned);
+                }
+            }
+            invokeAll(subtrees);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package csp.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Event-driven propagation for {@link CSP} searches. Every variable gets a domain of value indices, in the order
+ * of its own domain list; propagators remove values from it, and each change is reported as a {@link DomainEvent}
+ * to the propagators subscribed to it, which are then queued by priority and run until nothing changes or a
+ * domain is wiped out. Domains and the propagators' state live on one {@link Trail}: the search opens a level
+ * per assignment and undoing the assignment undoes everything propagated below it.
+ * The search only tries the values left in the domains, so whatever a propagator removes is never visited.
+ */
+public class PropagationEngine {
+    // cheap propagators that decide on counters first, binary ones next, the expensive ones last
+    public static final int PRIORITY_UNARY = 0;
+    public static final int PRIORITY_BINARY = 1;
+    public static final int PRIORITY_GLOBAL = 2;
+    private static final int EVENTS = DomainEvent.values().length;
+
+    private Propagator[] propagators = new Propagator[0];
+    private final Trail trail = new Trail();
+    private Variable[] variables;
+    private Map<Variable, Integer> ids;
+    private Object[][] values;
+    private Map<Object, Integer>[] valueIndex;
+    private IntDomain[] domains;
+    // trailed: lowest and highest live value index, 1 once the search assigned the variable
+    private int[] lower;
+    private int[] upper;
+    private int[] assigned;
+    // subscribers of variable v to event e are watchers[v * EVENTS + e], the ones of every variable allWatchers[e]
+    private int[][] watchers;
+    private int[] watcherCounts;
+    private int[][] allWatchers;
+    private int[] priorities;
+    private boolean[] scheduled;
+    private final PriorityQueue<Integer> queue = new PriorityQueue<>(this::comparePropagators);
+    private int[] levelMarks = new int[64];
+    private int depth;
+    private boolean failed;
+    private boolean rootFailed;
+    private long propagations;
+    private long removals;
+
+    public void addPropagator(Propagator propagator) {
+        Objects.requireNonNull(propagator);
+        propagators = Arrays.copyOf(propagators, propagators.length + 1);
+        propagators[propagators.length - 1] = propagator;
+    }
+
+    // Indexes the variables, attaches the propagators and propagates the initial assignment.
+    // Called by the CSP at the start of every search; false if the assignment cannot be extended to a solution.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    boolean reset(List<Variable> searchVariables, Map<Variable, Object> assignment) {
+        trail.undo(0);
+        depth = 0;
+        clearQueue();
+        int n = searchVariables.size();
+        variables = searchVariables.toArray(new Variable[0]);
+        ids = new HashMap<>(n * 2);
+        values = new Object[n][];
+        valueIndex = new Map[n];
+        domains = new IntDomain[n];
+        lower = new int[n];
+        upper = new int[n];
+        assigned = new int[n];
+        for (int v = 0; v < n; v++) {
+            ids.put(variables[v], v);
+            values[v] = variables[v].getDomain().toArray();
+            domains[v] = new IntDomain(values[v].length);
+            upper[v] = values[v].length - 1;
+        }
+        watchers = new int[n * EVENTS][];
+        watcherCounts = new int[n * EVENTS];
+        allWatchers = new int[EVENTS][0];
+        priorities = new int[propagators.length];
+        scheduled = new boolean[propagators.length];
+        propagations = 0;
+        removals = 0;
+        failed = false;
+        rootFailed = false;
+        for (int p = 0; p < propagators.length; p++) {
+            priorities[p] = propagators[p].priority();
+            propagators[p].attach(this);
+        }
+        for (Map.Entry<Variable, Object> entry : assignment.entrySet()) {
+            Integer id = ids.get(entry.getKey());
+            if (Objects.nonNull(id) && !instantiate(id, entry.getValue())) {
+                rootFailed = true;
+            }
+        }
+        for (int p = 0; p < propagators.length; p++) {
+            schedule(p);
+        }
+        rootFailed = !propagate() || rootFailed;
+        return !rootFailed;
+    }
+
+    // False if the initial assignment of the last search was found inconsistent
+    boolean isConsistent() {
+        return !rootFailed;
+    }
+
+    void pushLevel() {
+        if (depth == levelMarks.length) {
+            levelMarks = Arrays.copyOf(levelMarks, depth * 2);
+        }
+        levelMarks[depth++] = trail.mark();
+    }
+
+    // Undoes everything done since the matching pushLevel
+    void popLevel() {
+        if (depth > 0) {
+            trail.undo(levelMarks[--depth]);
+        }
+    }
+
+    // The search assigned the value, on a level of its own: reduces the domain to it and propagates
+    boolean assign(Variable variable, Object value) {
+        if (rootFailed) {
+            return false;
+        }
+        Integer id = Objects.isNull(ids) ? null : ids.get(variable);
+        if (Objects.isNull(id)) {
+            return true;
+        }
+        if (!instantiate(id, value)) {
+            return false;
+        }
+        return propagate();
+    }
+
+    // Whether the value is still in the variable's domain; values and variables the engine does not know count as live
+    public boolean contains(Variable variable, Object value) {
+        Integer id = Objects.isNull(ids) ? null : ids.get(variable);
+        if (Objects.isNull(id)) {
+            return true;
+        }
+        int index = indexOf(id, value);
+        return index < 0 || domains[id].contains(index);
+    }
+
+    // Whether any value of the variable was removed
+    public boolean isReduced(Variable variable) {
+        Integer id = Objects.isNull(ids) ? null : ids.get(variable);
+        return Objects.nonNull(id) && domains[id].size() < values[id].length;
+    }
+
+    public void subscribe(Propagator propagator, int variable, DomainEvent... events) {
+        int p = idOf(propagator);
+        for (DomainEvent event : events) {
+            int slot = variable * EVENTS + event.ordinal();
+            int[] list = watchers[slot];
+            int count = watcherCounts[slot];
+            if (Objects.isNull(list)) {
+                list = new int[2];
+            } else if (count == list.length) {
+                list = Arrays.copyOf(list, count * 2);
+            }
+            list[count] = p;
+            watchers[slot] = list;
+            watcherCounts[slot] = count + 1;
+        }
+    }
+
+    // Subscribes to the events of every variable, without a watch list entry per variable
+    public void subscribeAll(Propagator propagator, DomainEvent... events) {
+        int p = idOf(propagator);
+        for (DomainEvent event : events) {
+            int[] list = allWatchers[event.ordinal()];
+            list = Arrays.copyOf(list, list.length + 1);
+            list[list.length - 1] = p;
+            allWatchers[event.ordinal()] = list;
+        }
+    }
+
+    // Removes a value index from a domain, false if that wiped it out; then the propagator must fail
+    public boolean remove(int variable, int index) {
+        IntDomain domain = domains[variable];
+        if (!domain.contains(index)) {
+            return true;
+        }
+        trail.saveSize(domain);
+        domain.remove(index);
+        removals++;
+        if (domain.isEmpty()) {
+            failed = true;
+            return false;
+        }
+        boolean bounds = false;
+        if (index == lower[variable]) {
+            int low = index + 1;
+            while (!domain.contains(low)) {
+                low++;
+            }
+            trail.set(lower, variable, low);
+            bounds = true;
+        }
+        if (index == upper[variable]) {
+            int high = index - 1;
+            while (!domain.contains(high)) {
+                high--;
+            }
+            trail.set(upper, variable, high);
+            bounds = true;
+        }
+        notify(variable, DomainEvent.REMOVE);
+        if (bounds) {
+            notify(variable, DomainEvent.BOUNDS);
+        }
+        return true;
+    }
+
+    public Trail getTrail() {
+        return trail;
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    // Id of the variable in this search, or -1 if it is not one of the search's variables
+    public int idOf(Variable variable) {
+        Integer id = ids.get(variable);
+        return Objects.isNull(id) ? -1 : id;
+    }
+
+    public Variable getVariable(int variable) {
+        return variables[variable];
+    }
+
+    // Live value indices of the variable; read only, positions change with every removal
+    public IntDomain getDomain(int variable) {
+        return domains[variable];
+    }
+
+    public Object getValue(int variable, int index) {
+        return values[variable][index];
+    }
+
+    // Index of the value in the variable's domain, or -1. Values are matched with equals, arrays by content.
+    public int indexOf(int variable, Object value) {
+        if (Objects.isNull(valueIndex[variable])) {
+            Map<Object, Integer> index = new HashMap<>(values[variable].length * 2);
+            for (int i = 0; i < values[variable].length; i++) {
+                index.putIfAbsent(values[variable][i], i);
+            }
+            valueIndex[variable] = index;
+        }
+        Integer index = valueIndex[variable].get(value);
+        if (Objects.nonNull(index)) {
+            return index;
+        }
+        for (int i = 0; i < values[variable].length; i++) {
+            if (Objects.deepEquals(values[variable][i], value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isAssigned(int variable) {
+        return assigned[variable] != 0;
+    }
+
+    public int getLowerBound(int variable) {
+        return lower[variable];
+    }
+
+    public int getUpperBound(int variable) {
+        return upper[variable];
+    }
+
+    // Propagator runs in the last search
+    public long getPropagations() {
+        return propagations;
+    }
+
+    // Values removed by propagation in the last search, including the ones removed by assignments
+    public long getRemovals() {
+        return removals;
+    }
+
+    // Reduces the domain to the value, a value outside the domain the engine knows only raises ASSIGN
+    private boolean instantiate(int variable, Object value) {
+        trail.set(assigned, variable, 1);
+        int index = indexOf(variable, value);
+        if (index >= 0) {
+            IntDomain domain = domains[variable];
+            if (!domain.contains(index)) {
+                return false;
+            }
+            if (domain.size() > 1) {
+                // restoring this size undoes all the removals below at once
+                trail.saveSize(domain);
+                for (int k = domain.size() - 1; k >= 0; k--) {
+                    int other = domain.get(k);
+                    if (other != index) {
+                        domain.remove(other);
+                        removals++;
+                    }
+                }
+                boolean bounds = lower[variable] != index || upper[variable] != index;
+                trail.set(lower, variable, index);
+                trail.set(upper, variable, index);
+                notify(variable, DomainEvent.REMOVE);
+                if (bounds) {
+                    notify(variable, DomainEvent.BOUNDS);
+                }
+            }
+        }
+        notify(variable, DomainEvent.ASSIGN);
+        return true;
+    }
+
+    private void notify(int variable, DomainEvent event) {
+        int slot = variable * EVENTS + event.ordinal();
+        int[] list = watchers[slot];
+        for (int i = 0; i < watcherCounts[slot]; i++) {
+            propagators[list[i]].onEvent(this, variable, event);
+            schedule(list[i]);
+        }
+        for (int p : allWatchers[event.ordinal()]) {
+            propagators[p].onEvent(this, variable, event);
+            schedule(p);
+        }
+    }
+
+    private void schedule(int propagator) {
+        if (!scheduled[propagator]) {
+            scheduled[propagator] = true;
+            queue.add(propagator);
+        }
+    }
+
+    // Runs the queued propagators, lowest priority first, to a fixpoint or the first failure
+    private boolean propagate() {
+        while (!queue.isEmpty()) {
+            int p = queue.poll();
+            scheduled[p] = false;
+            propagations++;
+            if (!propagators[p].propagate(this) || failed) {
+                clearQueue();
+                failed = false;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clearQueue() {
+        queue.clear();
+        if (Objects.nonNull(scheduled)) {
+            Arrays.fill(scheduled, false);
+        }
+    }
+
+    private int comparePropagators(int a, int b) {
+        return priorities[a] != priorities[b] ? Integer.compare(priorities[a], priorities[b]) : Integer.compare(a, b);
+    }
+
+    private int idOf(Propagator propagator) {
+        for (int p = 0; p < propagators.length; p++) {
+            if (propagators[p] == propagator) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("Propagator was not added to the engine: " + propagator);
+    }
+}
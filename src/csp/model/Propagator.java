@@ -0,0 +1,25 @@
+package csp.model;
+
+/**
+ * Filtering algorithm run by a {@link PropagationEngine}. It subscribes to the events of the variables it watches
+ * when attached, is told about every such event as it happens, and is scheduled to propagate once the current
+ * change is done. State kept between calls has to be written through the engine's trail, so it is undone with
+ * the assignments it was derived from.
+ */
+public interface Propagator {
+    // Called at the start of every search, after the engine indexed the variables: subscribes and sets up the state
+    void attach(PropagationEngine engine);
+
+    // Lower priorities run first, see the PRIORITY_ constants of the engine
+    default int priority() {
+        return PropagationEngine.PRIORITY_UNARY;
+    }
+
+    // An event the propagator subscribed to happened on the variable with the given id; for incremental state only,
+    // domains must not be changed here
+    default void onEvent(PropagationEngine engine, int variable, DomainEvent event) {
+    }
+
+    // Removes the values that can no longer take part in a solution, false once the constraint cannot be satisfied
+    boolean propagate(PropagationEngine engine);
+}
@@ -0,0 +1,47 @@
+package csp.model;
+
+/**
+ * Failure cutoffs of the successive runs of a {@link RestartingSearch}.
+ */
+public interface RestartSchedule {
+    // Failures allowed to the run with the given index, starting at 0
+    long cutoff(int restart);
+
+    // unit * 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ..., the universal sequence of Luby, Sinclair and Zuckerman
+    static RestartSchedule luby(long unit) {
+        if (unit < 1) {
+            throw new IllegalArgumentException("unit must be positive: " + unit);
+        }
+        return restart -> saturatingMultiply(unit, lubyTerm(restart + 1L));
+    }
+
+    // first, first * factor, first * factor^2, ... The cutoffs have to grow, or a search could restart forever.
+    static RestartSchedule geometric(long first, double factor) {
+        if (first < 1 || !(factor > 1)) {
+            throw new IllegalArgumentException("first must be positive and factor greater than 1: " + first + ", " + factor);
+        }
+        return restart -> {
+            double cutoff = first * Math.pow(factor, restart);
+            return cutoff >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) cutoff;
+        };
+    }
+
+    // The i-th term of the Luby sequence, i starting at 1
+    private static long lubyTerm(long i) {
+        while (true) {
+            int k = 1;
+            while ((1L << k) - 1 < i) {
+                k++;
+            }
+            if ((1L << k) - 1 == i) {
+                return 1L << (k - 1);
+            }
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+
+    private static long saturatingMultiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        return high != 0 || a * b < 0 ? Long.MAX_VALUE : a * b;
+    }
+}
@@ -0,0 +1,86 @@
+package csp.model;
+
+import csp.model.heuristics.PriorityVariableOrdering;
+import csp.model.heuristics.RandomizedValueOrdering;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Backtracking search restarted from scratch whenever a run reaches the failure cutoff of its schedule.
+ * Every run breaks ties in the variable ordering differently and, unless the CSP has a value ordering of its own,
+ * tries values in a random order, all drawn from one generator seeded by the caller, so a seed always replays the
+ * same runs. Constraint weights learned by a conflict-directed ordering can be kept from one run to the next.
+ * The CSP's heuristics are reconfigured while searching and restored afterwards.
+ */
+public class RestartingSearch {
+    private final CSP csp;
+    private final RestartSchedule schedule;
+    private final long seed;
+    private boolean retainsWeights;
+    private int restarts;
+
+    public RestartingSearch(CSP csp, RestartSchedule schedule, long seed) {
+        this.csp = csp;
+        this.schedule = schedule;
+        this.seed = seed;
+    }
+
+    // Whether a conflict-directed variable ordering keeps its constraint weights across restarts
+    public RestartingSearch setRetainsWeights(boolean retainsWeights) {
+        this.retainsWeights = retainsWeights;
+        return this;
+    }
+
+    // Restarts until a run solves the problem or proves it unsatisfiable, or until the limits stop it.
+    // The node budget of the limits covers all the runs together.
+    public SolveResult search(Map<Variable, Object> assignment, Predicate<Map<Variable, Object>> stoppingCondition,
+                              Map<Variable, Set<Object>> domains, SearchLimits limits) {
+        long start = System.nanoTime();
+        Random random = new Random(seed);
+        VariableOrderingHeuristic variableOrdering = csp.getVariableOrderingHeuristic();
+        ValueOrderingHeuristic valueOrdering = csp.getValueOrderingHeuristic();
+        PriorityVariableOrdering priorityOrdering = variableOrdering instanceof PriorityVariableOrdering
+                ? (PriorityVariableOrdering) variableOrdering : null;
+        // the caller's settings, put back once the restarts are over
+        Random previousRandom = Objects.nonNull(priorityOrdering) ? priorityOrdering.getRandomTieBreaking() : null;
+        boolean previouslyRetainsWeights = Objects.nonNull(priorityOrdering) && priorityOrdering.retainsWeights();
+        if (Objects.nonNull(priorityOrdering)) {
+            priorityOrdering.setRandomTieBreaking(random);
+            priorityOrdering.setRetainsWeights(retainsWeights);
+        }
+        if (Objects.isNull(valueOrdering)) {
+            csp.setValueOrderingHeuristic(new RandomizedValueOrdering(random));
+        }
+        long nodes = 0;
+        long failures = 0;
+        try {
+            for (restarts = 0; ; restarts++) {
+                long nodeBudget = limits.getNodeBudget() == Long.MAX_VALUE
+                        ? Long.MAX_VALUE : Math.max(0, limits.getNodeBudget() - nodes);
+                SearchLimits run = limits.withNodeBudget(nodeBudget).withFailureBudget(schedule.cutoff(restarts));
+                SolveResult result = csp.backtrackingSearch(assignment, stoppingCondition, domains, run);
+                nodes += result.getNodes();
+                failures += result.getFailures();
+                if (result.getStatus() != SolveResult.Status.FAILURE_LIMIT) {
+                    return new SolveResult(result.getStatus(), result.getAssignment(), nodes, failures,
+                            System.nanoTime() - start, null);
+                }
+            }
+        } finally {
+            if (Objects.nonNull(priorityOrdering)) {
+                priorityOrdering.setRandomTieBreaking(previousRandom);
+                priorityOrdering.setRetainsWeights(previouslyRetainsWeights);
+            }
+            csp.setValueOrderingHeuristic(valueOrdering);
+        }
+    }
+
+    // Number of restarts made by the last search
+    public int getRestarts() {
+        return restarts;
+    }
+}
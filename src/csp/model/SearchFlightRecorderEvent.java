@@ -0,0 +1,34 @@
+package csp.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("csp.Search")
+@Label("CSP Search")
+@Category("CSP")
+@Description("One backtracking search with its counters")
+class SearchFlightRecorderEvent extends Event {
+    @Label("Solved")
+    boolean solved;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Backtracks")
+    long backtracks;
+
+    @Label("Constraint Checks")
+    long constraintChecks;
+
+    @Label("Conflicts")
+    long conflicts;
+
+    @Label("Strategy Rejections")
+    long strategyRejections;
+
+    @Label("Max Depth")
+    long maxDepth;
+}
@@ -0,0 +1,103 @@
+package csp.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Bounds on one search: a deadline, budgets of nodes and failures and a cancellation token, each optional.
+ * The search checks the token and the budgets at every step and reads the clock every
+ * {@link #CLOCK_CHECK_INTERVAL} steps, so a deadline is overshot by at most that many steps.
+ * Immutable, the with methods return a copy.
+ */
+public final class SearchLimits {
+    public static final int CLOCK_CHECK_INTERVAL = 256;
+    private static final SearchLimits NONE = new SearchLimits(false, 0L, Long.MAX_VALUE, Long.MAX_VALUE, null);
+
+    private final boolean hasDeadline;
+    // in System.nanoTime() terms
+    private final long deadlineNanos;
+    private final long nodeBudget;
+    private final long failureBudget;
+    private final CancellationToken cancellationToken;
+
+    private SearchLimits(boolean hasDeadline, long deadlineNanos, long nodeBudget, long failureBudget,
+                         CancellationToken cancellationToken) {
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+        this.nodeBudget = nodeBudget;
+        this.failureBudget = failureBudget;
+        this.cancellationToken = cancellationToken;
+    }
+
+    public static SearchLimits none() {
+        return NONE;
+    }
+
+    // Deadline that many nanoseconds from now
+    public SearchLimits withTimeout(Duration timeout) {
+        return withDeadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    // Deadline as a System.nanoTime() value
+    public SearchLimits withDeadline(long deadlineNanos) {
+        return new SearchLimits(true, deadlineNanos, nodeBudget, failureBudget, cancellationToken);
+    }
+
+    // Maximum number of nodes, assignments the search descends into
+    public SearchLimits withNodeBudget(long nodeBudget) {
+        if (nodeBudget < 0) {
+            throw new IllegalArgumentException("Node budget must not be negative: " + nodeBudget);
+        }
+        return new SearchLimits(hasDeadline, deadlineNanos, nodeBudget, failureBudget, cancellationToken);
+    }
+
+    // Maximum number of failures, values rejected by the constraints or strategies and pruned nodes
+    public SearchLimits withFailureBudget(long failureBudget) {
+        if (failureBudget < 0) {
+            throw new IllegalArgumentException("Failure budget must not be negative: " + failureBudget);
+        }
+        return new SearchLimits(hasDeadline, deadlineNanos, nodeBudget, failureBudget, cancellationToken);
+    }
+
+    public SearchLimits withCancellationToken(CancellationToken cancellationToken) {
+        return new SearchLimits(hasDeadline, deadlineNanos, nodeBudget, failureBudget, cancellationToken);
+    }
+
+    // The status the search must stop with after the given number of steps, nodes and failures, or null to go on
+    SolveResult.Status check(long steps, long nodes, long failures) {
+        if (Objects.nonNull(cancellationToken) && cancellationToken.isCancelled()) {
+            return SolveResult.Status.CANCELLED;
+        }
+        // checked before every value is tried, so the search never descends past the budget
+        if (nodes >= nodeBudget) {
+            return SolveResult.Status.NODE_LIMIT;
+        }
+        if (failures > failureBudget) {
+            return SolveResult.Status.FAILURE_LIMIT;
+        }
+        if (hasDeadline && steps % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos >= 0) {
+            return SolveResult.Status.TIMED_OUT;
+        }
+        return null;
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+    public long getFailureBudget() {
+        return failureBudget;
+    }
+
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+}
@@ -0,0 +1,33 @@
+package csp.model;
+
+import java.util.Map;
+
+/**
+ * Callbacks from a running search, made on the searching thread. Every method defaults to doing nothing,
+ * and a search without listeners skips the calls entirely.
+ */
+public interface SearchListener {
+    default void onSearchStart(Map<Variable, Object> assignment) {
+    }
+
+    // Called with the outcome once the search returns
+    default void onSearchEnd(boolean solved) {
+    }
+
+    // A value passed the strategies and the consistency check, the search descends into a new node
+    default void onAssign(Variable variable, Object value) {
+    }
+
+    // The search backtracked out of the variable's assignment
+    default void onUnassign(Variable variable) {
+    }
+
+    // A lookahead or track-and-adjust strategy rejected the value
+    default void onStrategyRejection(Variable variable, Object value) {
+    }
+
+    // The consistency check after assigning the variable evaluated the given number of constraints,
+    // violated is the constraint that failed or null
+    default void onConsistencyCheck(Variable variable, int constraintsChecked, Constraint violated) {
+    }
+}
@@ -0,0 +1,178 @@
+package csp.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counters and phase timings of a solve. Register it on a {@link CSP} as a listener, and pass it to the
+ * preprocessing algorithms that report into it. When a JDK Flight Recorder recording is running, every search
+ * and arc consistency pass is also emitted as a csp.Search or csp.ArcConsistency event.
+ * Not thread-safe, use one instance per searching thread.
+ */
+public class SearchStatistics implements SearchListener {
+    public static final String SEARCH_PHASE = "search";
+    public static final String ARC_CONSISTENCY_PHASE = "arc-consistency";
+
+    private long nodes;
+    private long backtracks;
+    private long constraintChecks;
+    private long conflicts;
+    private long strategyRejections;
+    private long prunedValues;
+    private int depth;
+    private int maxDepth;
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    private long searchStart;
+    private long searchNodes, searchBacktracks, searchChecks, searchConflicts, searchRejections;
+    private SearchFlightRecorderEvent event;
+    private ArcConsistencyFlightRecorderEvent arcEvent;
+
+    @Override
+    public void onSearchStart(Map<Variable, Object> assignment) {
+        searchStart = System.nanoTime();
+        // depths are per search, the counters add up over the solve
+        depth = 0;
+        maxDepth = 0;
+        searchNodes = nodes;
+        searchBacktracks = backtracks;
+        searchChecks = constraintChecks;
+        searchConflicts = conflicts;
+        searchRejections = strategyRejections;
+        SearchFlightRecorderEvent searchEvent = new SearchFlightRecorderEvent();
+        if (searchEvent.isEnabled()) {
+            searchEvent.begin();
+            event = searchEvent;
+        }
+    }
+
+    @Override
+    public void onSearchEnd(boolean solved) {
+        addPhaseTime(SEARCH_PHASE, System.nanoTime() - searchStart);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.solved = solved;
+                event.nodes = nodes - searchNodes;
+                event.backtracks = backtracks - searchBacktracks;
+                event.constraintChecks = constraintChecks - searchChecks;
+                event.conflicts = conflicts - searchConflicts;
+                event.strategyRejections = strategyRejections - searchRejections;
+                event.maxDepth = maxDepth;
+                event.commit();
+            }
+            event = null;
+        }
+    }
+
+    @Override
+    public void onAssign(Variable variable, Object value) {
+        nodes++;
+        if (++depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    @Override
+    public void onUnassign(Variable variable) {
+        backtracks++;
+        depth--;
+    }
+
+    @Override
+    public void onStrategyRejection(Variable variable, Object value) {
+        strategyRejections++;
+    }
+
+    @Override
+    public void onConsistencyCheck(Variable variable, int constraintsChecked, Constraint violated) {
+        constraintChecks += constraintsChecked;
+        if (violated != null) {
+            conflicts++;
+        }
+    }
+
+    // Reported by arc consistency algorithms when a pass starts, so its event spans the pass
+    public void onArcConsistencyStart() {
+        ArcConsistencyFlightRecorderEvent passEvent = new ArcConsistencyFlightRecorderEvent();
+        if (passEvent.isEnabled()) {
+            passEvent.begin();
+            arcEvent = passEvent;
+        }
+    }
+
+    // Reported by arc consistency algorithms once they are done
+    public void onArcConsistency(long arcs, long pruned, long elapsedNanos) {
+        prunedValues += pruned;
+        addPhaseTime(ARC_CONSISTENCY_PHASE, elapsedNanos);
+        ArcConsistencyFlightRecorderEvent passEvent = arcEvent;
+        arcEvent = null;
+        if (passEvent != null && passEvent.shouldCommit()) {
+            passEvent.arcs = arcs;
+            passEvent.prunedValues = pruned;
+            passEvent.commit();
+        }
+    }
+
+    public void addPhaseTime(String phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    // Nodes are assignments that passed the strategies and the consistency check
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public long getConstraintChecks() {
+        return constraintChecks;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public long getStrategyRejections() {
+        return strategyRejections;
+    }
+
+    public long getPrunedValues() {
+        return prunedValues;
+    }
+
+    // Deepest assignment of the last search
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public Map<String, Long> getPhaseNanos() {
+        return Collections.unmodifiableMap(phaseNanos);
+    }
+
+    public void reset() {
+        nodes = 0;
+        backtracks = 0;
+        constraintChecks = 0;
+        conflicts = 0;
+        strategyRejections = 0;
+        prunedValues = 0;
+        depth = 0;
+        maxDepth = 0;
+        phaseNanos.clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder phases = new StringBuilder();
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            phases.append(", ").append(phase.getKey()).append("=").append(phase.getValue() / 1_000).append("us");
+        }
+        return "nodes=" + nodes + ", backtracks=" + backtracks + ", constraintChecks=" + constraintChecks
+                + ", conflicts=" + conflicts + ", strategyRejections=" + strategyRejections
+                + ", prunedValues=" + prunedValues + ", maxDepth=" + maxDepth + phases;
+    }
+}
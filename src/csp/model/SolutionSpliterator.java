@@ -0,0 +1,119 @@
+package csp.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Spliterator over every solution that extends an assignment, for parallel streams. It holds a queue of partial
+ * assignments still to be searched. Splitting expands a pending assignment by one variable, the same way
+ * {@link ParallelBacktrackingSearch} does, and hands half of the pending subtrees to the new spliterator.
+ * Each subtree is searched lazily by {@link CSP#solutionIterator} on its own CSP from the factory.
+ */
+public class SolutionSpliterator implements Spliterator<Map<Variable, Object>> {
+    // how many single-valued levels trySplit walks down looking for a branching point
+    private static final int MAX_EXPANSION_DEPTH = 64;
+
+    private final Supplier<CSP> cspFactory;
+    private final Predicate<Map<Variable, Object>> stoppingCondition;
+    private final Map<Variable, Set<Object>> domains;
+    private final Deque<Map<Variable, Object>> pending;
+    private Iterator<Map<Variable, Object>> current;
+
+    public SolutionSpliterator(Supplier<CSP> cspFactory, Map<Variable, Object> assignment,
+                               Predicate<Map<Variable, Object>> stoppingCondition, Map<Variable, Set<Object>> domains) {
+        this(cspFactory, stoppingCondition, domains, new ArrayDeque<>());
+        pending.add(new LinkedHashMap<>(assignment));
+    }
+
+    private SolutionSpliterator(Supplier<CSP> cspFactory, Predicate<Map<Variable, Object>> stoppingCondition,
+                                Map<Variable, Set<Object>> domains, Deque<Map<Variable, Object>> pending) {
+        this.cspFactory = cspFactory;
+        this.stoppingCondition = stoppingCondition;
+        this.domains = domains;
+        this.pending = pending;
+    }
+
+    public static Stream<Map<Variable, Object>> stream(Supplier<CSP> cspFactory, Map<Variable, Object> assignment,
+                                                       Predicate<Map<Variable, Object>> stoppingCondition,
+                                                       Map<Variable, Set<Object>> domains, boolean parallel) {
+        return StreamSupport.stream(new SolutionSpliterator(cspFactory, assignment, stoppingCondition, domains), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map<Variable, Object>> action) {
+        while (true) {
+            if (Objects.nonNull(current) && current.hasNext()) {
+                action.accept(current.next());
+                return true;
+            }
+            current = null;
+            Map<Variable, Object> prefix = pending.poll();
+            if (prefix == null) {
+                return false;
+            }
+            current = cspFactory.get().solutionIterator(prefix, stoppingCondition, domains);
+        }
+    }
+
+    @Override
+    public Spliterator<Map<Variable, Object>> trySplit() {
+        if (Objects.isNull(current)) {
+            for (int depth = 0; pending.size() == 1 && depth < MAX_EXPANSION_DEPTH; depth++) {
+                if (!expand(pending.poll())) {
+                    break;
+                }
+            }
+        }
+        if (pending.size() < 2) {
+            return null;
+        }
+        Deque<Map<Variable, Object>> half = new ArrayDeque<>();
+        for (int i = pending.size() / 2; i > 0; i--) {
+            half.addFirst(pending.pollLast());
+        }
+        return new SolutionSpliterator(cspFactory, stoppingCondition, domains, half);
+    }
+
+    // Replaces the prefix by one child per consistent value of its next variable. Returns false when it cannot be
+    // expanded, either because it is a solution already (kept pending) or because it is a dead end (dropped).
+    private boolean expand(Map<Variable, Object> prefix) {
+        if (stoppingCondition.test(prefix)) {
+            pending.add(prefix);
+            return false;
+        }
+        CSP csp = cspFactory.get();
+        csp.initializeHeuristics(prefix);
+        Variable unassigned = csp.selectUnassignedVariable(prefix);
+        if (unassigned == null) {
+            return false;
+        }
+        for (Object value : csp.orderValues(unassigned, unassigned.getDomain(), prefix)) {
+            if (csp.tryAssign(prefix, unassigned, value, domains)) {
+                pending.add(new LinkedHashMap<>(prefix));
+                csp.unassign(prefix, unassigned);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | IMMUTABLE;
+    }
+}
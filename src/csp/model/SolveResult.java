@@ -0,0 +1,87 @@
+package csp.model;
+
+import java.util.Map;
+
+/**
+ * Outcome of a search run within {@link SearchLimits}: whether it found a solution, proved there is none or was
+ * stopped, with the assignment it ended on and what it cost.
+ */
+public final class SolveResult {
+    public enum Status {
+        SOLVED,
+        // the whole search space was explored without a solution
+        UNSATISFIABLE,
+        TIMED_OUT,
+        NODE_LIMIT,
+        // the cutoff of a restart, see RestartingSearch
+        FAILURE_LIMIT,
+        CANCELLED
+    }
+
+    private final Status status;
+    private final Map<Variable, Object> assignment;
+    private final long nodes;
+    private final long failures;
+    private final long elapsedNanos;
+    private final SearchStatistics statistics;
+
+    public SolveResult(Status status, Map<Variable, Object> assignment, long nodes, long failures, long elapsedNanos,
+                       SearchStatistics statistics) {
+        this.status = status;
+        this.assignment = assignment;
+        this.nodes = nodes;
+        this.failures = failures;
+        this.elapsedNanos = elapsedNanos;
+        this.statistics = statistics;
+    }
+
+    // Copy carrying the statistics collected by the caller's listener
+    public SolveResult withStatistics(SearchStatistics statistics) {
+        return new SolveResult(status, assignment, nodes, failures, elapsedNanos, statistics);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    // True if the search was stopped by a limit before it could decide
+    public boolean isInterrupted() {
+        return status != Status.SOLVED && status != Status.UNSATISFIABLE;
+    }
+
+    // The solution once solved, the partial assignment the search was at when it was interrupted, null if unsatisfiable
+    public Map<Variable, Object> getAssignment() {
+        return assignment;
+    }
+
+    public Map<Variable, Object> getSolution() {
+        return isSolved() ? assignment : null;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Null unless statistics were collected for the search
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return "SolveResult{" + status + ", nodes=" + nodes + ", failures=" + failures + ", elapsed=" + elapsedNanos / 1_000_000 + "ms"
+                + (assignment != null ? ", assigned=" + assignment.size() : "") + "}";
+    }
+}
@@ -0,0 +1,10 @@
+package csp.model;
+
+/**
+ * Zobrist-style hashing of search states. The hash of an assignment is the XOR of the keys of its
+ * (variable, value) pairs, so the search updates it with one XOR per assignment and per backtrack.
+ */
+public interface StateHasher {
+    // Pseudo-random 64-bit key of assigning the value to the variable, must be the same on every call
+    long keyOf(Variable variable, Object value);
+}
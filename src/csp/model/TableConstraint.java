@@ -0,0 +1,196 @@
+package csp.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary constraint given by its allowed pairs. Values get an index in the order the variables' domains list them,
+ * and the supports of every value are stored as a bitset over the indices of the other variable, in both directions,
+ * so a propagator can test a value against a whole domain with word-wide ANDs. Values are matched with equals,
+ * like {@link CompiledCsp#valueIndexOf}.
+ */
+public class TableConstraint implements Constraint {
+    private final Variable x;
+    private final Variable y;
+    private final Object[] xValues;
+    private final Object[] yValues;
+    private final Map<Object, Integer> xIndex;
+    private final Map<Object, Integer> yIndex;
+    // supports of x value i are xSupports[i * xWords .. (i + 1) * xWords), bits over the values of y, and the reverse
+    private final int xWords;
+    private final int yWords;
+    private final long[] xSupports;
+    private final long[] ySupports;
+
+    // Table over the variables' current domains, allowing the given {xValue, yValue} pairs
+    public TableConstraint(Variable x, Variable y, Iterable<Object[]> allowedPairs) {
+        this(x, y, x.getDomain().toArray(), y.getDomain().toArray());
+        for (Object[] pair : allowedPairs) {
+            allow(pair[0], pair[1]);
+        }
+    }
+
+    private TableConstraint(Variable x, Variable y, Object[] xValues, Object[] yValues) {
+        this.x = x;
+        this.y = y;
+        this.xValues = xValues;
+        this.yValues = yValues;
+        this.xIndex = index(xValues);
+        this.yIndex = index(yValues);
+        this.xWords = wordsFor(yValues.length);
+        this.yWords = wordsFor(xValues.length);
+        this.xSupports = new long[xValues.length * xWords];
+        this.ySupports = new long[yValues.length * yWords];
+    }
+
+    // Table of the pairs of the given values a binary constraint is satisfied by, asking it once per pair
+    public static TableConstraint tabulate(Constraint constraint, List<Object> xValues, List<Object> yValues) {
+        List<Variable> scope = constraint.getVariables();
+        if (scope.size() != 2) {
+            throw new IllegalArgumentException("Only binary constraints can be tabulated, scope: " + scope.size());
+        }
+        Variable x = scope.get(0);
+        Variable y = scope.get(1);
+        TableConstraint table = new TableConstraint(x, y, xValues.toArray(), yValues.toArray());
+        Map<Variable, Object> pair = new HashMap<>(4);
+        for (int i = 0; i < table.xValues.length; i++) {
+            pair.put(x, table.xValues[i]);
+            for (int j = 0; j < table.yValues.length; j++) {
+                pair.put(y, table.yValues[j]);
+                if (constraint.isSatisfied(pair)) {
+                    table.set(i, j);
+                }
+            }
+        }
+        return table;
+    }
+
+    public static TableConstraint tabulate(Constraint constraint) {
+        List<Variable> scope = constraint.getVariables();
+        return tabulate(constraint, scope.get(0).getDomain(), scope.get(1).getDomain());
+    }
+
+    private static Map<Object, Integer> index(Object[] values) {
+        Map<Object, Integer> index = new HashMap<>(values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+            index.putIfAbsent(values[i], i);
+        }
+        return index;
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + Long.SIZE - 1) >>> 6;
+    }
+
+    // Allows one more pair, both values must be in the domains the table was built over
+    public void allow(Object xValue, Object yValue) {
+        Integer i = xIndex.get(xValue);
+        Integer j = yIndex.get(yValue);
+        if (i == null || j == null) {
+            throw new IllegalArgumentException("Pair outside the domains of " + x.getName() + " and " + y.getName());
+        }
+        set(i, j);
+    }
+
+    private void set(int i, int j) {
+        xSupports[i * xWords + (j >>> 6)] |= 1L << j;
+        ySupports[j * yWords + (i >>> 6)] |= 1L << i;
+    }
+
+    public boolean allows(Object xValue, Object yValue) {
+        Integer i = xIndex.get(xValue);
+        Integer j = yIndex.get(yValue);
+        return i != null && j != null && (xSupports[i * xWords + (j >>> 6)] & 1L << j) != 0;
+    }
+
+    @Override
+    public boolean isSatisfied(Map<Variable, Object> assignment) {
+        Object xValue = assignment.get(x);
+        Object yValue = assignment.get(y);
+        if (xValue == null || yValue == null) {
+            return true;
+        }
+        return allows(xValue, yValue);
+    }
+
+    @Override
+    public List<Variable> getVariables() {
+        return List.of(x, y);
+    }
+
+    // The other variable of the scope
+    public Variable otherThan(Variable variable) {
+        return variable.equals(x) ? y : x;
+    }
+
+    // Values of the variable in index order
+    public Object[] valuesOf(Variable variable) {
+        return variable.equals(x) ? xValues : yValues;
+    }
+
+    // Index of the value in the variable's table domain, or -1
+    public int indexOf(Variable variable, Object value) {
+        Integer index = (variable.equals(x) ? xIndex : yIndex).get(value);
+        return index == null ? -1 : index;
+    }
+
+    // Words per value in supportsOf(variable), enough to cover the other variable's values
+    public int supportWords(Variable variable) {
+        return variable.equals(x) ? xWords : yWords;
+    }
+
+    // Supports of every value of the variable, one row of supportWords(variable) words per value index.
+    // The array is the table itself and must not be modified.
+    public long[] supportsOf(Variable variable) {
+        return variable.equals(x) ? xSupports : ySupports;
+    }
+
+    // Number of allowed pairs
+    public long size() {
+        long size = 0;
+        for (long word : xSupports) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    @Override
+    public IntConstraint compile(CompiledCsp compiled) {
+        int idX = compiled.requireId(x);
+        int idY = compiled.requireId(y);
+        int[] xRow = translate(compiled, idX, xIndex);
+        int[] yBit = translate(compiled, idY, yIndex);
+        int[] scope = {idX, idY};
+        return new IntConstraint() {
+            @Override
+            public boolean isSatisfied(IntAssignment assignment, int assigned) {
+                if (!assignment.isAssigned(idX) || !assignment.isAssigned(idY)) {
+                    return true;
+                }
+                int i = xRow[assignment.valueOf(idX)];
+                int j = yBit[assignment.valueOf(idY)];
+                return i >= 0 && j >= 0 && (xSupports[i * xWords + (j >>> 6)] & 1L << j) != 0;
+            }
+
+            @Override
+            public int[] getScope() {
+                return scope;
+            }
+        };
+    }
+
+    // Table index of every compiled value index of the variable, -1 for values the table does not know
+    private static int[] translate(CompiledCsp compiled, int var, Map<Object, Integer> index) {
+        int[] translated = new int[compiled.getDomainSize(var)];
+        Arrays.fill(translated, -1);
+        for (int v = 0; v < translated.length; v++) {
+            Integer i = index.get(compiled.getValue(var, v));
+            if (i != null) {
+                translated[v] = i;
+            }
+        }
+        return translated;
+    }
+}
@@ -0,0 +1,97 @@
+package csp.model;
+
+/**
+ * Arc consistency on a {@link TableConstraint} inside a {@link PropagationEngine}: whenever a value is removed
+ * from one of the two variables, the values of both that lost their last support are removed in turn. A value
+ * remembers the last support it found, trying it first is what makes most revisions a single bit test.
+ * The propagator keeps the constraint's checks in the CSP valid, it only removes values they would reject.
+ */
+public class TablePropagator implements Propagator {
+    private final TableConstraint table;
+    private int x;
+    private int y;
+    // table index of every engine value index of x and y, -1 for values the table does not know
+    private int[] xRows;
+    private int[] yRows;
+    // last engine value index of the other variable found to support a value, not trailed: a stale residue is
+    // only a wasted test
+    private int[] xResidues;
+    private int[] yResidues;
+
+    public TablePropagator(TableConstraint table) {
+        this.table = table;
+    }
+
+    @Override
+    public void attach(PropagationEngine engine) {
+        Variable first = table.getVariables().get(0);
+        Variable second = table.getVariables().get(1);
+        x = engine.idOf(first);
+        y = engine.idOf(second);
+        if (x < 0 || y < 0) {
+            return;
+        }
+        xRows = rowsOf(engine, x, first);
+        yRows = rowsOf(engine, y, second);
+        xResidues = new int[xRows.length];
+        yResidues = new int[yRows.length];
+        engine.subscribe(this, x, DomainEvent.REMOVE);
+        engine.subscribe(this, y, DomainEvent.REMOVE);
+    }
+
+    @Override
+    public int priority() {
+        return PropagationEngine.PRIORITY_BINARY;
+    }
+
+    @Override
+    public boolean propagate(PropagationEngine engine) {
+        if (x < 0 || y < 0) {
+            return true;
+        }
+        Variable first = engine.getVariable(x);
+        Variable second = engine.getVariable(y);
+        return revise(engine, x, xRows, xResidues, y, yRows, table.supportsOf(first), table.supportWords(first))
+                && revise(engine, y, yRows, yResidues, x, xRows, table.supportsOf(second), table.supportWords(second));
+    }
+
+    // Removes the values of var without a support among the live values of other
+    private static boolean revise(PropagationEngine engine, int var, int[] rows, int[] residues, int other,
+                                  int[] otherRows, long[] supports, int words) {
+        IntDomain domain = engine.getDomain(var);
+        IntDomain otherDomain = engine.getDomain(other);
+        // removals swap values within the live prefix, so it is walked from the end
+        for (int k = domain.size() - 1; k >= 0; k--) {
+            int value = domain.get(k);
+            int row = rows[value];
+            if (row >= 0 && otherDomain.contains(residues[value]) && supports(supports, row, words, otherRows[residues[value]])) {
+                continue;
+            }
+            int support = -1;
+            for (int j = 0; j < otherDomain.size() && support < 0 && row >= 0; j++) {
+                int candidate = otherDomain.get(j);
+                if (supports(supports, row, words, otherRows[candidate])) {
+                    support = candidate;
+                }
+            }
+            if (support >= 0) {
+                residues[value] = support;
+            } else if (!engine.remove(var, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean supports(long[] supports, int row, int words, int column) {
+        return column >= 0 && (supports[row * words + (column >>> 6)] & 1L << column) != 0;
+    }
+
+    private int[] rowsOf(PropagationEngine engine, int var, Variable variable) {
+        int[] rows = new int[engine.getDomain(var).capacity()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = table.indexOf(variable, engine.getValue(var, i));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,62 @@
+package csp.model;
+
+import java.util.Arrays;
+
+/**
+ * Undo log of the reversible state of a search: domain sizes, and the int cells propagators keep their
+ * incremental state in. Every write records the old value first, and undo(mark) restores everything written
+ * since the mark, newest first, which is what lets an {@link IntDomain} removal be undone by its size alone.
+ */
+public class Trail {
+    private Object[] owners = new Object[64];
+    private int[] indices = new int[64];
+    private int[] values = new int[64];
+    private int size;
+
+    // Position to undo back to
+    public int mark() {
+        return size;
+    }
+
+    // Sets array[index], recording the old value
+    public void set(int[] array, int index, int value) {
+        if (array[index] != value) {
+            push(array, index, array[index]);
+            array[index] = value;
+        }
+    }
+
+    public void add(int[] array, int index, int delta) {
+        set(array, index, array[index] + delta);
+    }
+
+    // Records the size of the domain before a removal
+    void saveSize(IntDomain domain) {
+        push(domain, 0, domain.size());
+    }
+
+    public void undo(int mark) {
+        while (size > mark) {
+            size--;
+            Object owner = owners[size];
+            owners[size] = null;
+            if (owner instanceof IntDomain) {
+                ((IntDomain) owner).restoreSize(values[size]);
+            } else {
+                ((int[]) owner)[indices[size]] = values[size];
+            }
+        }
+    }
+
+    private void push(Object owner, int index, int value) {
+        if (size == owners.length) {
+            owners = Arrays.copyOf(owners, size * 2);
+            indices = Arrays.copyOf(indices, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        owners[size] = owner;
+        indices[size] = index;
+        values[size] = value;
+        size++;
+    }
+}
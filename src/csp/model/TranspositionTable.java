@@ -0,0 +1,127 @@
+package csp.model;
+
+import java.util.Arrays;
+
+/**
+ * Bounded table of search states proven to fail, keyed by their 64-bit state hash. Entries live in buckets of two
+ * slots; when both are taken the replacement policy picks the victim. Only the hash is stored, so two states sharing
+ * a hash are treated as one; with 64-bit keys this is rare enough to be accepted. Not thread-safe, use one table per
+ * searching thread.
+ */
+public class TranspositionTable {
+    public enum ReplacementPolicy {
+        // A new entry always takes the place of the older one in its bucket
+        ALWAYS_REPLACE,
+        // A new entry replaces the deeper of the two, and is dropped if both are shallower:
+        // shallow failures cut bigger subtrees and are worth more
+        DEPTH_PREFERRED
+    }
+
+    // Key and depth of one slot
+    private static final int BYTES_PER_ENTRY = Long.BYTES + Integer.BYTES;
+    private static final long EMPTY = 0L;
+
+    private final long[] keys;
+    private final int[] depths;
+    private final int mask;
+    private final ReplacementPolicy policy;
+    private int size;
+    private long probes, hits, stores, replacements;
+
+    public TranspositionTable(long memoryBudgetBytes, ReplacementPolicy policy) {
+        long entries = Math.max(2, memoryBudgetBytes / BYTES_PER_ENTRY);
+        // power of two slots so the bucket index is a mask of the hash
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[capacity];
+        this.depths = new int[capacity];
+        this.mask = capacity - 2;
+        this.policy = policy;
+    }
+
+    // Returns true if the state was recorded as failed
+    public boolean isFailed(long hash) {
+        probes++;
+        long key = normalize(hash);
+        int slot = (int) key & mask;
+        if (keys[slot] == key || keys[slot + 1] == key) {
+            hits++;
+            return true;
+        }
+        return false;
+    }
+
+    // Records that the search failed below the state, depth being the number of assigned variables in it
+    public void recordFailure(long hash, int depth) {
+        long key = normalize(hash);
+        int slot = (int) key & mask;
+        int victim;
+        if (keys[slot] == key || keys[slot] == EMPTY) {
+            victim = slot;
+        } else if (keys[slot + 1] == key || keys[slot + 1] == EMPTY) {
+            victim = slot + 1;
+        } else if (policy == ReplacementPolicy.ALWAYS_REPLACE) {
+            // the first slot always holds the newest entry, the older one moves out
+            keys[slot + 1] = keys[slot];
+            depths[slot + 1] = depths[slot];
+            victim = slot;
+            replacements++;
+        } else {
+            victim = depths[slot] >= depths[slot + 1] ? slot : slot + 1;
+            if (depths[victim] < depth) {
+                return;
+            }
+            replacements++;
+        }
+        if (keys[victim] == key) {
+            depths[victim] = Math.min(depths[victim], depth);
+        } else {
+            if (keys[victim] == EMPTY) {
+                size++;
+            }
+            keys[victim] = key;
+            depths[victim] = depth;
+        }
+        stores++;
+    }
+
+    // The empty assignment hashes to 0, which marks free slots, so it is moved to another key
+    private static long normalize(long hash) {
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(depths, 0);
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    public long getReplacements() {
+        return replacements;
+    }
+
+    @Override
+    public String toString() {
+        return "TranspositionTable{capacity=" + keys.length + ", size=" + size + ", probes=" + probes
+                + ", hits=" + hits + ", stores=" + stores + ", replacements=" + replacements + "}";
+    }
+}
@@ -0,0 +1,9 @@
+package csp.model;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface ValueOrderingHeuristic {
+    // Returns the values of the variable in the order the search should try them
+    Iterable<Object> orderValues(CSP csp, Variable variable, Collection<Object> values, Map<Variable, Object> assignment);
+}
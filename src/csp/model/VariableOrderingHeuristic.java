@@ -0,0 +1,21 @@
+package csp.model;
+
+import java.util.Map;
+
+public interface VariableOrderingHeuristic {
+    // Called before a search starts, with the assignment the search starts from
+    void initialize(CSP csp, Map<Variable, Object> assignment);
+
+    // Returns the next variable to assign, or null if every variable is assigned
+    Variable selectUnassignedVariable(Map<Variable, Object> assignment);
+
+    // Called after the search assigned the variable and before it is checked
+    void onAssign(Variable variable);
+
+    // Called after the search removed the variable from the assignment
+    void onUnassign(Variable variable);
+
+    // Called when the given constraint rejected an assignment
+    default void onConflict(Constraint constraint) {
+    }
+}
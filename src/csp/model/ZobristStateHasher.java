@@ -0,0 +1,43 @@
+package csp.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * State hasher for any CSP. Keys are derived from the hash codes of the variable and the value with SplitMix64
+ * instead of being drawn into a table, so there is nothing to store per variable. Array values are hashed by content.
+ */
+public class ZobristStateHasher implements StateHasher {
+    private final long seed;
+
+    public ZobristStateHasher() {
+        this(0x9E3779B97F4A7C15L);
+    }
+
+    public ZobristStateHasher(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public long keyOf(Variable variable, Object value) {
+        long variableKey = mix(seed + variable.hashCode());
+        return mix(variableKey ^ valueHash(value));
+    }
+
+    private static int valueHash(Object value) {
+        if (value instanceof int[]) {
+            return Arrays.hashCode((int[]) value);
+        }
+        if (value instanceof Object[]) {
+            return Arrays.deepHashCode((Object[]) value);
+        }
+        return Objects.hashCode(value);
+    }
+
+    // SplitMix64 finalizer
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,23 @@
+package csp.model.heuristics;
+
+/**
+ * Conflict-directed ordering: every constraint starts with weight 1 and gains 1 each time it rejects
+ * an assignment. Selects the unassigned variable with the smallest ratio of remaining values to the summed
+ * weight of its constraints with other unassigned variables.
+ */
+public class DomWdegHeuristic extends PriorityVariableOrdering {
+
+    public DomWdegHeuristic() {
+        super(true);
+    }
+
+    @Override
+    protected double score(int var) {
+        return remainingValues[var] / Math.max(weightedDegree[var], 1);
+    }
+
+    @Override
+    protected boolean recordsConflicts() {
+        return true;
+    }
+}
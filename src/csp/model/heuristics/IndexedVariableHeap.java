@@ -0,0 +1,126 @@
+package csp.model.heuristics;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Binary min-heap over variable ids with a position index, so a variable can be removed or re-prioritized
+ * in O(log n). Scores are read through the given function, ties go to the lower rank, the id unless ranks are set.
+ */
+class IndexedVariableHeap {
+    private final int[] heap;
+    private final int[] positions;
+    private final IntToDoubleFunction score;
+    private int[] rank;
+    private int size;
+
+    IndexedVariableHeap(int capacity, IntToDoubleFunction score) {
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.score = score;
+        Arrays.fill(positions, -1);
+    }
+
+    // Tie-breaking rank of every variable, null to break ties by id. Set it while the heap is empty.
+    void setRank(int[] rank) {
+        this.rank = rank;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int var) {
+        return positions[var] >= 0;
+    }
+
+    int peek() {
+        return heap[0];
+    }
+
+    void insert(int var) {
+        if (contains(var)) {
+            return;
+        }
+        heap[size] = var;
+        positions[var] = size;
+        siftUp(size++);
+    }
+
+    void remove(int var) {
+        int position = positions[var];
+        if (position < 0) {
+            return;
+        }
+        positions[var] = -1;
+        int last = heap[--size];
+        if (position < size) {
+            heap[position] = last;
+            positions[last] = position;
+            siftDown(position);
+            siftUp(positions[last]);
+        }
+    }
+
+    // Restores the heap order after the score of the variable changed
+    void update(int var) {
+        int position = positions[var];
+        if (position >= 0) {
+            siftUp(position);
+            siftDown(positions[var]);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private boolean before(int a, int b) {
+        double scoreA = score.applyAsDouble(a);
+        double scoreB = score.applyAsDouble(b);
+        if (scoreA != scoreB) {
+            return scoreA < scoreB;
+        }
+        return rank == null ? a < b : rank[a] < rank[b];
+    }
+
+    private void siftUp(int position) {
+        int var = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!before(var, heap[parent])) {
+                break;
+            }
+            move(heap[parent], position);
+            position = parent;
+        }
+        move(var, position);
+    }
+
+    private void siftDown(int position) {
+        int var = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], var)) {
+                break;
+            }
+            move(heap[child], position);
+            position = child;
+        }
+        move(var, position);
+    }
+
+    private void move(int var, int position) {
+        heap[position] = var;
+        positions[var] = position;
+    }
+}
@@ -0,0 +1,16 @@
+package csp.model.heuristics;
+
+/**
+ * Selects the unassigned variable involved in the most constraints with other unassigned variables.
+ */
+public class MaxDegreeHeuristic extends PriorityVariableOrdering {
+
+    public MaxDegreeHeuristic() {
+        super(false);
+    }
+
+    @Override
+    protected double score(int var) {
+        return -degree[var];
+    }
+}
@@ -0,0 +1,17 @@
+package csp.model.heuristics;
+
+/**
+ * Fail-first ordering: selects the unassigned variable with the fewest values left that are consistent
+ * with its assigned neighbors.
+ */
+public class MinimumRemainingValuesHeuristic extends PriorityVariableOrdering {
+
+    public MinimumRemainingValuesHeuristic() {
+        super(true);
+    }
+
+    @Override
+    protected double score(int var) {
+        return remainingValues[var];
+    }
+}
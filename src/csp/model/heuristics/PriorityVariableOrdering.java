@@ -0,0 +1,276 @@
+package csp.model.heuristics;
+
+import csp.model.CSP;
+import csp.model.Constraint;
+import csp.model.Variable;
+import csp.model.VariableOrderingHeuristic;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Base of the heuristics that keep the unassigned variables in a priority heap. The lowest score is selected,
+ * ties go to the variable that comes first in {@link CSP#getVariables()}, or to a random one with
+ * {@link #setRandomTieBreaking}, drawn again at every initialize so each restart of a search orders them differently.
+ * Scores are updated incrementally on assign and unassign from the constraints watching the changed variable:
+ * the dynamic degree and the weighted degree of a variable count its constraints that still involve another
+ * unassigned variable, and the remaining values count the values consistent with its assigned neighbors.
+ * Global constraints are not part of any score.
+ */
+public abstract class PriorityVariableOrdering implements VariableOrderingHeuristic {
+    private final boolean tracksRemainingValues;
+    private Random random;
+    private boolean retainsWeights;
+
+    protected CSP csp;
+    private Map<Variable, Object> assignment;
+    private Variable[] variables;
+    private Map<Variable, Integer> ids;
+    private Map<Constraint, Integer> constraintIds;
+    private int[][] scopes;
+    // constraintsOf[v] holds the ids of the constraints whose scope contains v
+    private int[][] constraintsOf;
+    private int[] unassignedInScope;
+    private boolean[] assigned;
+    protected int[] remainingValues;
+    protected int[] degree;
+    protected double[] weightedDegree;
+    protected double[] weights;
+    private IndexedVariableHeap heap;
+
+    protected PriorityVariableOrdering(boolean tracksRemainingValues) {
+        this.tracksRemainingValues = tracksRemainingValues;
+    }
+
+    // Lower scores are selected first
+    protected abstract double score(int var);
+
+    // Breaks ties in a random order drawn from the given generator, null goes back to the variable order
+    public void setRandomTieBreaking(Random random) {
+        this.random = random;
+    }
+
+    // Keeps the constraint weights learned from conflicts when initialized again on the same CSP,
+    // e.g. across the restarts of a search, instead of starting every constraint over at weight 1
+    public void setRetainsWeights(boolean retainsWeights) {
+        this.retainsWeights = retainsWeights;
+    }
+
+    // The generator ties are broken with, null for the variable order
+    public Random getRandomTieBreaking() {
+        return random;
+    }
+
+    public boolean retainsWeights() {
+        return retainsWeights;
+    }
+
+    @Override
+    public void initialize(CSP csp, Map<Variable, Object> assignment) {
+        boolean sameCsp = this.csp == csp;
+        this.csp = csp;
+        this.assignment = assignment;
+        List<Variable> cspVariables = csp.getVariables();
+        int n = cspVariables.size();
+        variables = new Variable[n];
+        ids = new HashMap<>(n * 2);
+        assigned = new boolean[n];
+        int id = 0;
+        for (Variable var : cspVariables) {
+            variables[id] = var;
+            ids.put(var, id);
+            assigned[id] = assignment.containsKey(var);
+            id++;
+        }
+        indexConstraints(retainsWeights && sameCsp);
+
+        remainingValues = new int[n];
+        degree = new int[n];
+        weightedDegree = new double[n];
+        for (int c = 0; c < scopes.length; c++) {
+            for (int var : scopes[c]) {
+                if (otherUnassigned(c, var) > 0) {
+                    degree[var]++;
+                    weightedDegree[var] += weights[c];
+                }
+            }
+        }
+        heap = new IndexedVariableHeap(n, this::score);
+        if (Objects.nonNull(random)) {
+            heap.setRank(randomRanks(n));
+        }
+        for (int var = 0; var < n; var++) {
+            if (!assigned[var]) {
+                if (tracksRemainingValues) {
+                    remainingValues[var] = countRemainingValues(var);
+                }
+                heap.insert(var);
+            }
+        }
+    }
+
+    // A random permutation of 0..n-1
+    private int[] randomRanks(int n) {
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(i + 1);
+            rank[i] = rank[j];
+            rank[j] = i;
+        }
+        return rank;
+    }
+
+    private void indexConstraints(boolean keepWeights) {
+        Map<Constraint, Integer> previousIds = constraintIds;
+        double[] previousWeights = weights;
+        constraintIds = new IdentityHashMap<>();
+        for (Constraint constraint : csp.getConstraints()) {
+            if (!constraint.getVariables().isEmpty()) {
+                constraintIds.putIfAbsent(constraint, constraintIds.size());
+            }
+        }
+        scopes = new int[constraintIds.size()][];
+        unassignedInScope = new int[scopes.length];
+        weights = new double[scopes.length];
+        for (Map.Entry<Constraint, Integer> entry : constraintIds.entrySet()) {
+            int c = entry.getValue();
+            List<Variable> scope = entry.getKey().getVariables();
+            scopes[c] = new int[scope.size()];
+            for (int i = 0; i < scope.size(); i++) {
+                Integer var = ids.get(scope.get(i));
+                scopes[c][i] = var == null ? -1 : var;
+                if (var != null && !assigned[var]) {
+                    unassignedInScope[c]++;
+                }
+            }
+            Integer previous = keepWeights && Objects.nonNull(previousIds) ? previousIds.get(entry.getKey()) : null;
+            weights[c] = previous == null ? 1 : previousWeights[previous];
+        }
+        int[] count = new int[variables.length];
+        for (int[] scope : scopes) {
+            for (int var : scope) {
+                if (var >= 0) {
+                    count[var]++;
+                }
+            }
+        }
+        constraintsOf = new int[variables.length][];
+        for (int var = 0; var < variables.length; var++) {
+            constraintsOf[var] = new int[count[var]];
+            count[var] = 0;
+        }
+        for (int c = 0; c < scopes.length; c++) {
+            for (int var : scopes[c]) {
+                if (var >= 0) {
+                    constraintsOf[var][count[var]++] = c;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Variable selectUnassignedVariable(Map<Variable, Object> assignment) {
+        return heap.isEmpty() ? null : variables[heap.peek()];
+    }
+
+    @Override
+    public void onAssign(Variable variable) {
+        Integer var = ids.get(variable);
+        if (var == null || assigned[var]) {
+            return;
+        }
+        assigned[var] = true;
+        heap.remove(var);
+        updateNeighbors(var, -1);
+    }
+
+    @Override
+    public void onUnassign(Variable variable) {
+        Integer var = ids.get(variable);
+        if (var == null || !assigned[var]) {
+            return;
+        }
+        assigned[var] = false;
+        updateNeighbors(var, 1);
+        if (tracksRemainingValues) {
+            remainingValues[var] = countRemainingValues(var);
+        }
+        heap.insert(var);
+    }
+
+    private void updateNeighbors(int var, int delta) {
+        for (int c : constraintsOf[var]) {
+            unassignedInScope[c] += delta;
+            for (int other : scopes[c]) {
+                if (other < 0 || other == var) {
+                    continue;
+                }
+                boolean changed = tracksRemainingValues;
+                // the constraint stops or starts counting for other when var was its last other unassigned variable
+                if (otherUnassigned(c, other) == (delta < 0 ? 0 : 1)) {
+                    degree[other] += delta;
+                    weightedDegree[other] += delta * weights[c];
+                    changed = true;
+                }
+                if (changed && !assigned[other]) {
+                    if (tracksRemainingValues) {
+                        remainingValues[other] = countRemainingValues(other);
+                    }
+                    heap.update(other);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onConflict(Constraint constraint) {
+        Integer c = constraintIds.get(constraint);
+        if (c == null || !recordsConflicts()) {
+            return;
+        }
+        weights[c]++;
+        for (int var : scopes[c]) {
+            if (var >= 0 && otherUnassigned(c, var) > 0) {
+                weightedDegree[var]++;
+                if (!assigned[var]) {
+                    heap.update(var);
+                }
+            }
+        }
+    }
+
+    // Whether conflicts increase the weight of the failing constraint
+    protected boolean recordsConflicts() {
+        return false;
+    }
+
+    private int otherUnassigned(int c, int var) {
+        return unassignedInScope[c] - (assigned[var] ? 0 : 1);
+    }
+
+    // Counts the values of var that satisfy its constraints against the current assignment
+    private int countRemainingValues(int var) {
+        Variable variable = variables[var];
+        List<Constraint> constraints = csp.getConstraints(variable);
+        int remaining = 0;
+        for (Object value : variable.getDomain()) {
+            assignment.put(variable, value);
+            boolean consistent = true;
+            for (Constraint constraint : constraints) {
+                if (!constraint.isSatisfied(assignment, variable)) {
+                    consistent = false;
+                    break;
+                }
+            }
+            if (consistent) {
+                remaining++;
+            }
+        }
+        assignment.remove(variable);
+        return remaining;
+    }
+}
@@ -0,0 +1,34 @@
+package csp.model.heuristics;
+
+import csp.model.CSP;
+import csp.model.ValueOrderingHeuristic;
+import csp.model.Variable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tries the values of a variable in a random order drawn from the given generator,
+ * so a seeded generator gives the same order on every run.
+ */
+public class RandomizedValueOrdering implements ValueOrderingHeuristic {
+    private final Random random;
+
+    public RandomizedValueOrdering(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public Iterable<Object> orderValues(CSP csp, Variable variable, Collection<Object> values, Map<Variable, Object> assignment) {
+        if (values.size() < 2) {
+            return values;
+        }
+        List<Object> shuffled = new ArrayList<>(values);
+        Collections.shuffle(shuffled, random);
+        return shuffled;
+    }
+}
@@ -0,0 +1,130 @@
+package csp.robot;
+
+import csp.model.CSP;
+import csp.model.CancellationToken;
+import csp.model.Variable;
+import csp.robot.models.RobotGridCsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races several search configurations on the same grid. Every configuration runs on its own thread with its own
+ * {@link CSP}, so strategies and heuristics never share state. The first configuration to find a path wins and
+ * the others are cancelled through a shared {@link CancellationToken}. A configuration that throws drops out of
+ * the race, the others go on.
+ */
+public class PortfolioSolver {
+
+    public interface Configuration {
+        // Sets the strategies and heuristics of a fresh search over the grid
+        void configure(CSP csp, RobotGridCsp robotGridCsp, long seed);
+    }
+
+    public static class Result {
+        private final String winner;
+        private final Map<Variable, Object> assignment;
+        private final long elapsedNanos;
+
+        Result(String winner, Map<Variable, Object> assignment, long elapsedNanos) {
+            this.winner = winner;
+            this.assignment = assignment;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // Name of the configuration that found the path, or null if none did
+        public String getWinner() {
+            return winner;
+        }
+
+        public Map<Variable, Object> getAssignment() {
+            return assignment;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    private static class Entry {
+        final String name;
+        final long seed;
+        final Configuration configuration;
+
+        Entry(String name, long seed, Configuration configuration) {
+            this.name = name;
+            this.seed = seed;
+            this.configuration = configuration;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public PortfolioSolver add(String name, Configuration configuration) {
+        return add(name, 0L, configuration);
+    }
+
+    public PortfolioSolver add(String name, long seed, Configuration configuration) {
+        entries.add(new Entry(name, seed, configuration));
+        return this;
+    }
+
+    public Result solve(RobotGridCsp robotGridCsp) {
+        if (entries.isEmpty()) {
+            throw new IllegalStateException("The portfolio has no configurations");
+        }
+        long start = System.nanoTime();
+        CancellationToken cancellationToken = new CancellationToken();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(entries.size(), runnable -> {
+            Thread thread = new Thread(runnable, "portfolio-solver-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+            for (Entry entry : entries) {
+                completionService.submit(() -> {
+                    CSP csp = robotGridCsp.newCsp();
+                    entry.configuration.configure(csp, robotGridCsp, entry.seed);
+                    csp.setCancellationToken(cancellationToken);
+                    Map<Variable, Object> assignment = robotGridCsp.solveBacktracking(csp);
+                    return new Result(entry.name, assignment, System.nanoTime() - start);
+                });
+            }
+            ExecutionException failure = null;
+            int failed = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                Result result;
+                try {
+                    result = completionService.take().get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                    failed++;
+                    continue;
+                }
+                if (result.getAssignment() != null) {
+                    return result;
+                }
+            }
+            // a configuration that ran to the end without a path proves there is none, failures prove nothing
+            if (failed == entries.size()) {
+                throw new IllegalStateException("Every portfolio configuration failed", failure.getCause());
+            }
+            return new Result(null, null, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(null, null, System.nanoTime() - start);
+        } finally {
+            cancellationToken.cancel();
+            executor.shutdown();
+        }
+    }
+}
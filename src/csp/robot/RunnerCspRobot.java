@@ -1,15 +1,22 @@
 package csp.robot;
 
+import csp.model.Incumbent;
 import csp.model.TrackAndAdjustStrategy;
 import csp.model.Variable;
+import csp.model.heuristics.DomWdegHeuristic;
+import csp.model.heuristics.MinimumRemainingValuesHeuristic;
+import csp.model.heuristics.PriorityVariableOrdering;
 import csp.robot.models.RobotGridCsp;
 import csp.robot.models.RobotGridCspFactory;
 import csp.model.LookaheadStrategy;
 import csp.robot.models.strategies.RobotNavigationLookaheadStrategy;
 import csp.robot.models.strategies.RobotNavigationTrackAndAdjust;
+import csp.robot.models.strategies.TargetCountLookaheadStrategy;
+import csp.robot.models.strategies.TargetDistanceValueOrdering;
 
 import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
 
 public class RunnerCspRobot {
 
@@ -21,7 +28,7 @@ public class RunnerCspRobot {
     }
 
     private static Map<Variable, Object> runWithTrackAndAdjust(RobotGridCsp robotGridCSP) {
-        TrackAndAdjustStrategy trackAndAdjustStrategy = new RobotNavigationTrackAndAdjust(robotGridCSP.getEnergyLimit(), robotGridCSP.getRestrictedCells());
+        TrackAndAdjustStrategy trackAndAdjustStrategy = new RobotNavigationTrackAndAdjust(robotGridCSP);
         return robotGridCSP.solveBacktracking(null, trackAndAdjustStrategy);
 
     }
@@ -30,13 +37,50 @@ public class RunnerCspRobot {
         return robotGridCsp.solveBacktracking(null, null);
     }
 
+    private static Map<Variable, Object> runWithCompiledSearch(RobotGridCsp robotGridCsp) {
+        return robotGridCsp.solveCompiled();
+    }
+
+    private static Map<Variable, Object> runWithMinimumEnergy(RobotGridCsp robotGridCsp) {
+        Incumbent incumbent = new Incumbent(Integer.MAX_VALUE, best -> System.out.println("Best so far: " + best));
+        Map<Variable, Object> assignment = robotGridCsp.solveMinimumEnergy(incumbent, null);
+        System.out.println(incumbent);
+        return assignment;
+    }
 
+    private static Map<Variable, Object> runWithPortfolio(RobotGridCsp robotGridCsp) {
+        PortfolioSolver.Result result = new PortfolioSolver()
+                .add("baseline", (csp, grid, seed) -> { })
+                .add("lookahead", (csp, grid, seed) -> csp.setLookaheadStrategy(new RobotNavigationLookaheadStrategy(grid.getEnergyLimit())))
+                .add("target-count", (csp, grid, seed) -> csp.setLookaheadStrategy(new TargetCountLookaheadStrategy(grid)))
+                .add("track-and-adjust", (csp, grid, seed) -> csp.setTrackAndAdjustStrategy(new RobotNavigationTrackAndAdjust(grid)))
+                .add("mrv", 1L, (csp, grid, seed) -> csp.setVariableOrderingHeuristic(seeded(new MinimumRemainingValuesHeuristic(), seed)))
+                .add("dom-wdeg", 2L, (csp, grid, seed) -> csp.setVariableOrderingHeuristic(seeded(new DomWdegHeuristic(), seed)))
+                .add("dom-wdeg-2", 3L, (csp, grid, seed) -> csp.setVariableOrderingHeuristic(seeded(new DomWdegHeuristic(), seed)))
+                .add("target-distance", (csp, grid, seed) -> csp.setValueOrderingHeuristic(new TargetDistanceValueOrdering(grid)))
+                .solve(robotGridCsp);
+        if (Objects.nonNull(result.getWinner())) {
+            System.out.println("Portfolio winner: " + result.getWinner() + " after " + result.getElapsedNanos() / 1_000_000 + " ms");
+        }
+        return result.getAssignment();
+    }
+
+
+
+    // Same heuristic with ties broken at random, so configurations differing only by seed explore differently
+    private static PriorityVariableOrdering seeded(PriorityVariableOrdering ordering, long seed) {
+        ordering.setRandomTieBreaking(new Random(seed));
+        return ordering;
+    }
 
     public static void run() {
         RobotGridCsp robotGridCsp = RobotGridCspFactory.getComplexRobotGrid();
 //        Map<Variable, Object> assignment = runWithBaseBacktracking(robotGridCsp);
         Map<Variable, Object> assignment = runWithTrackAndAdjust(robotGridCsp);
 //        Map<Variable, Object> assignment = runWithForwardCheckStrategy(robotGridCsp);
+//        Map<Variable, Object> assignment = runWithCompiledSearch(robotGridCsp);
+//        Map<Variable, Object> assignment = runWithMinimumEnergy(robotGridCsp);
+//        Map<Variable, Object> assignment = runWithPortfolio(robotGridCsp);
         robotGridCsp.displaySolution(assignment);
         robotGridCsp.displayConstraintGraphSize();
         if (Objects.nonNull(assignment)){
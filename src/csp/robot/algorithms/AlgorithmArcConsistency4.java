@@ -1,115 +1,244 @@
 package csp.robot.algorithms;
 
 import csp.model.Constraint;
+import csp.model.SearchStatistics;
+import csp.model.TableConstraint;
 import csp.model.Variable;
 
 import java.util.*;
 
+/**
+ * AC-4 over integer ids. Every label (variable, value) gets a dense id, every binary constraint gives two arcs,
+ * support counters are kept per arc and value in an int[], and the labels supported by each label are stored
+ * in CSR form, so a removed label only visits the arcs it actually supports.
+ */
 public class AlgorithmArcConsistency4 {
     private final Map<Variable, Set<Object>> domains;
     private final List<Constraint> constraints;
-    private final Map<Pair, Integer> counter;
-    private final Map<Variable, Map<Object, Set<Pair>>> support;
-    private final Queue<Pair> list;
+
+    private Variable[] variables;
+    private Object[][] values;
+    // labelBase[v] is the id of the first label of variable v
+    private int[] labelBase;
+    // counter[c] is the number of supports left for one label on one arc, counterLabel[c] is that label
+    private int[] counter;
+    private int[] counterLabel;
+    // counters of the labels supported by label l are supported[supportStart[l] .. supportStart[l + 1])
+    private int[] supportStart;
+    private int[] supported;
+    private boolean[] removed;
+    private int[] list;
+    private int listHead, listTail;
+    private int arcs;
+    private SearchStatistics statistics;
 
     public AlgorithmArcConsistency4(Map<Variable, Set<Object>> domains, List<Constraint> constraints) {
         this.domains = domains;
         this.constraints = constraints;
-        this.counter = new HashMap<>();
-        this.support = new HashMap<>();
-        this.list = new LinkedList<>();
     }
 
-    private static class Pair {
-        Variable var;
-        Object value;
+    // Reports the arcs, the pruned values and the time of every pass to the given statistics
+    public void setStatistics(SearchStatistics statistics) {
+        this.statistics = statistics;
+    }
 
-        Pair(Variable var, Object value) {
-            this.var = var;
-            this.value = value;
+    public void enforceArcConsistency() {
+        long start = System.nanoTime();
+        if (statistics != null) {
+            statistics.onArcConsistencyStart();
+        }
+        Map<Variable, Integer> ids = indexLabels();
+        int labels = labelBase[variables.length];
+        removed = new boolean[labels];
+        list = new int[labels];
+        listHead = 0;
+        listTail = 0;
+        arcs = 0;
+
+        // Step 1: Initialization, count the supports of every label on every arc
+        IntList counterLabels = new IntList();
+        IntList supportPairs = new IntList();
+        Map<Variable, Object> partialAssignment = new HashMap<>();
+        for (Constraint constraint : constraints) {
+            List<Variable> scope = constraint.getVariables();
+            if (scope.size() != 2) {
+                continue;
+            }
+            Integer id1 = ids.get(scope.get(0));
+            Integer id2 = ids.get(scope.get(1));
+            if (id1 == null || id2 == null) {
+                continue;
+            }
+            partialAssignment.clear();
+            initializeArc(constraint, id1, id2, partialAssignment, counterLabels, supportPairs);
+            partialAssignment.clear();
+            initializeArc(constraint, id2, id1, partialAssignment, counterLabels, supportPairs);
+            arcs += 2;
         }
+        counterLabel = counterLabels.toArray();
+        buildSupportLists(labels, supportPairs);
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            Pair pair = (Pair) o;
-            return Objects.equals(var, pair.var) && Objects.equals(value, pair.value);
+        // Step 2: Remove unsupported labels
+        while (listHead < listTail) {
+            int label = list[listHead++];
+            for (int i = supportStart[label]; i < supportStart[label + 1]; i++) {
+                int c = supported[i];
+                if (!removed[counterLabel[c]] && --counter[c] == 0) {
+                    reject(counterLabel[c]);
+                }
+            }
         }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(var, value);
+        writeBackDomains();
+        if (statistics != null) {
+            statistics.onArcConsistency(arcs, listTail, System.nanoTime() - start);
         }
     }
 
-    public void enforceArcConsistency() {
-        // Step 1: Initialization
-        for (Constraint constraint : constraints) {
-            List<Variable> variables = constraint.getVariables();
-            if (variables.size() == 2) {
-                Variable var1 = variables.get(0);
-                Variable var2 = variables.get(1);
-
-                for (Object value1 : domains.get(var1)) {
-                    int totalSupport = 0;
-                    Set<Pair> supportingPairs = new HashSet<>();
-
-                    for (Object value2 : domains.get(var2)) {
-                        Map<Variable, Object> partialAssignment = new HashMap<>();
-                        partialAssignment.put(var1, value1);
-                        partialAssignment.put(var2, value2);
-
-                        // Check if this pair satisfies the constraint
-                        if (constraint.isSatisfied(partialAssignment)) {
-                            totalSupport++;
-                            supportingPairs.add(new Pair(var2, value2));
-                        }
-                    }
+    // Number of values removed from the domains by the last pass
+    public int getPrunedValues() {
+        return listTail;
+    }
 
-                    if (totalSupport == 0) {
-                        // No support, so add to the rejection list
-                        list.add(new Pair(var1, value1));
-                    } else {
-                        // Record support information
-                        support.computeIfAbsent(var1, k -> new HashMap<>()).put(value1, supportingPairs);
-                        counter.put(new Pair(var1, value1), totalSupport);
-                    }
+    public int getArcCount() {
+        return arcs;
+    }
+
+    private Map<Variable, Integer> indexLabels() {
+        int n = domains.size();
+        variables = new Variable[n];
+        values = new Object[n][];
+        labelBase = new int[n + 1];
+        Map<Variable, Integer> ids = new HashMap<>(n * 2);
+        int id = 0;
+        for (Map.Entry<Variable, Set<Object>> entry : domains.entrySet()) {
+            variables[id] = entry.getKey();
+            values[id] = entry.getValue().toArray();
+            labelBase[id + 1] = labelBase[id] + values[id].length;
+            ids.put(entry.getKey(), id);
+            id++;
+        }
+        return ids;
+    }
+
+    // Counts, for every value of var, its supports in other, and records which label supports which counter
+    private void initializeArc(Constraint constraint, int var, int other, Map<Variable, Object> partialAssignment,
+                               IntList counterLabels, IntList supportPairs) {
+        int first = counterLabels.size();
+        counter = ensureCapacity(counter, first + values[var].length);
+        TableConstraint table = constraint instanceof TableConstraint ? (TableConstraint) constraint : null;
+        long[] supports = null;
+        int words = 0;
+        int[] otherIndex = null;
+        if (table != null) {
+            supports = table.supportsOf(variables[var]);
+            words = table.supportWords(variables[var]);
+            otherIndex = new int[values[other].length];
+            for (int j = 0; j < otherIndex.length; j++) {
+                otherIndex[j] = table.indexOf(variables[other], values[other][j]);
+            }
+        }
+        for (int i = 0; i < values[var].length; i++) {
+            int c = first + i;
+            counterLabels.add(labelBase[var] + i);
+            partialAssignment.put(variables[var], values[var][i]);
+            int totalSupport = 0;
+            int row = table == null ? -1 : table.indexOf(variables[var], values[var][i]) * words;
+            for (int j = 0; j < values[other].length; j++) {
+                boolean satisfied;
+                if (table != null) {
+                    // tables answer from their support bits, without building an assignment for the pair
+                    int bit = otherIndex[j];
+                    satisfied = row >= 0 && bit >= 0 && (supports[row + (bit >>> 6)] & 1L << bit) != 0;
+                } else {
+                    partialAssignment.put(variables[other], values[other][j]);
+                    // Check if this pair satisfies the constraint
+                    satisfied = constraint.isSatisfied(partialAssignment);
                 }
+                if (satisfied) {
+                    totalSupport++;
+                    supportPairs.add(labelBase[other] + j);
+                    supportPairs.add(c);
+                }
+            }
+            counter[c] = totalSupport;
+            if (totalSupport == 0) {
+                // No support, so add to the rejection list
+                reject(labelBase[var] + i);
             }
         }
+    }
 
-        // Step 2: Remove unsupported labels
-        while (!list.isEmpty()) {
-            Pair p = list.poll();
+    private void buildSupportLists(int labels, IntList supportPairs) {
+        supportStart = new int[labels + 1];
+        for (int i = 0; i < supportPairs.size(); i += 2) {
+            supportStart[supportPairs.get(i) + 1]++;
+        }
+        for (int l = 0; l < labels; l++) {
+            supportStart[l + 1] += supportStart[l];
+        }
+        supported = new int[supportPairs.size() / 2];
+        int[] fill = Arrays.copyOf(supportStart, labels);
+        for (int i = 0; i < supportPairs.size(); i += 2) {
+            supported[fill[supportPairs.get(i)]++] = supportPairs.get(i + 1);
+        }
+    }
+
+    private void reject(int label) {
+        if (!removed[label]) {
+            removed[label] = true;
+            list[listTail++] = label;
+        }
+    }
+
+    private void writeBackDomains() {
+        for (int v = 0; v < variables.length; v++) {
+            Set<Object> remaining = null;
+            for (int i = 0; i < values[v].length; i++) {
+                if (removed[labelBase[v] + i]) {
+                    if (remaining == null) {
+                        remaining = new LinkedHashSet<>(Arrays.asList(values[v]).subList(0, i));
+                    }
+                } else if (remaining != null) {
+                    remaining.add(values[v][i]);
+                }
+            }
+            if (remaining != null) {
+                // domains may be immutable sets, so a pruned domain is replaced rather than edited
+                domains.put(variables[v], remaining);
+            }
+        }
+    }
 
-            Variable var = p.var;
-            Object value = p.value;
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        if (array == null) {
+            return new int[Math.max(16, capacity)];
+        }
+        if (array.length < capacity) {
+            return Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+        }
+        return array;
+    }
 
-            // Remove the value from the domain of the variable
-            domains.get(var).remove(value);
+    private static class IntList {
+        private int[] elements = new int[16];
+        private int size;
 
-            for (Constraint constraint : constraints) {
-                if (constraint.getVariables().contains(var)) {
-                    List<Variable> variables = constraint.getVariables();
-                    Variable neighborVar = variables.get(0).equals(var) ? variables.get(1) : variables.get(0);
+        void add(int element) {
+            elements = ensureCapacity(elements, size + 1);
+            elements[size++] = element;
+        }
 
-                    for (Object neighborValue : domains.get(neighborVar)) {
-                        Pair neighborPair = new Pair(neighborVar, neighborValue);
-                        Set<Pair> supportSet = support.get(neighborVar).get(neighborValue);
+        int get(int index) {
+            return elements[index];
+        }
 
-                        if (supportSet != null && supportSet.contains(p)) {
-                            counter.put(neighborPair, counter.get(neighborPair) - 1);
-                            supportSet.remove(p);
+        int size() {
+            return size;
+        }
 
-                            // If no support left, add to the list for removal
-                            if (counter.get(neighborPair) == 0) {
-                                list.add(neighborPair);
-                            }
-                        }
-                    }
-                }
-            }
+        int[] toArray() {
+            return Arrays.copyOf(elements, size);
         }
     }
 }
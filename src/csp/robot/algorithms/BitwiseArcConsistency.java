@@ -0,0 +1,273 @@
+package csp.robot.algorithms;
+
+import csp.model.Constraint;
+import csp.model.SearchStatistics;
+import csp.model.TableConstraint;
+import csp.model.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AC-3bit with residual supports. Domains are bitsets, every arc keeps the support bitset of each value of its
+ * variable over the values of the other one, so revising a value is an AND of its row with the other domain,
+ * word by word, starting at the word where it last found a support. Binary constraints that are not
+ * {@link TableConstraint}s are tabulated once over the domains, non-binary constraints are left out, as in AC-4.
+ * Same use as {@link AlgorithmArcConsistency4}: the domains are pruned in place of the given map.
+ */
+public class BitwiseArcConsistency {
+    private final Map<Variable, Set<Object>> domains;
+    private final List<Constraint> constraints;
+
+    private Variable[] variables;
+    private Object[][] values;
+    private long[][] domainBits;
+    private int[] domainSizes;
+    // arcs[a] revises arcVariable[a] against arcOther[a], arcsTowards[v] lists the arcs whose other variable is v
+    private int[] arcVariable;
+    private int[] arcOther;
+    private long[][] arcRows;
+    private int[] arcWords;
+    private int[][] residues;
+    private int[][] arcsTowards;
+    private int prunedValues;
+    private int revisions;
+    private boolean wipedOut;
+    private SearchStatistics statistics;
+
+    public BitwiseArcConsistency(Map<Variable, Set<Object>> domains, List<Constraint> constraints) {
+        this.domains = domains;
+        this.constraints = constraints;
+    }
+
+    public void setStatistics(SearchStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    // Returns false if a domain was wiped out, the problem has no solution then. The pass stops at the first
+    // empty domain, so the other domains are only partly pruned in that case.
+    public boolean enforceArcConsistency() {
+        long start = System.nanoTime();
+        if (statistics != null) {
+            statistics.onArcConsistencyStart();
+        }
+        Map<Variable, Integer> ids = indexDomains();
+        buildArcs(ids);
+        prunedValues = 0;
+        revisions = 0;
+        wipedOut = false;
+
+        int n = variables.length;
+        int[] queue = new int[n];
+        boolean[] queued = new boolean[n];
+        int head = 0, size = 0;
+        for (int v = 0; v < n; v++) {
+            queue[size++] = v;
+            queued[v] = true;
+        }
+        while (size > 0 && !wipedOut) {
+            int changed = queue[head];
+            head = (head + 1) % n;
+            size--;
+            queued[changed] = false;
+            for (int arc : arcsTowards[changed]) {
+                int var = arcVariable[arc];
+                if (revise(arc) && !queued[var]) {
+                    queue[(head + size) % n] = var;
+                    size++;
+                    queued[var] = true;
+                }
+            }
+        }
+
+        writeBackDomains();
+        if (statistics != null) {
+            statistics.onArcConsistency(arcVariable.length, prunedValues, System.nanoTime() - start);
+        }
+        return !wipedOut;
+    }
+
+    public int getPrunedValues() {
+        return prunedValues;
+    }
+
+    public int getArcCount() {
+        return arcVariable.length;
+    }
+
+    // Number of arc revisions made by the last pass
+    public int getRevisions() {
+        return revisions;
+    }
+
+    private Map<Variable, Integer> indexDomains() {
+        int n = domains.size();
+        variables = new Variable[n];
+        values = new Object[n][];
+        domainBits = new long[n][];
+        domainSizes = new int[n];
+        Map<Variable, Integer> ids = new HashMap<>(n * 2);
+        int id = 0;
+        for (Map.Entry<Variable, Set<Object>> entry : domains.entrySet()) {
+            variables[id] = entry.getKey();
+            values[id] = entry.getValue().toArray();
+            domainBits[id] = new long[wordsFor(values[id].length)];
+            for (int i = 0; i < values[id].length; i++) {
+                domainBits[id][i >>> 6] |= 1L << i;
+            }
+            domainSizes[id] = values[id].length;
+            ids.put(entry.getKey(), id);
+            id++;
+        }
+        return ids;
+    }
+
+    private void buildArcs(Map<Variable, Integer> ids) {
+        List<int[]> arcs = new ArrayList<>();
+        List<long[]> rows = new ArrayList<>();
+        for (Constraint constraint : constraints) {
+            List<Variable> scope = constraint.getVariables();
+            if (scope.size() != 2) {
+                continue;
+            }
+            Integer first = ids.get(scope.get(0));
+            Integer second = ids.get(scope.get(1));
+            if (first == null || second == null) {
+                continue;
+            }
+            TableConstraint table = constraint instanceof TableConstraint
+                    ? (TableConstraint) constraint
+                    : TableConstraint.tabulate(constraint, Arrays.asList(values[first]), Arrays.asList(values[second]));
+            arcs.add(new int[]{first, second});
+            rows.add(rowsFor(table, first, second));
+            arcs.add(new int[]{second, first});
+            rows.add(rowsFor(table, second, first));
+        }
+        int count = arcs.size();
+        arcVariable = new int[count];
+        arcOther = new int[count];
+        arcRows = rows.toArray(new long[0][]);
+        arcWords = new int[count];
+        residues = new int[count][];
+        int[] towards = new int[variables.length];
+        for (int a = 0; a < count; a++) {
+            arcVariable[a] = arcs.get(a)[0];
+            arcOther[a] = arcs.get(a)[1];
+            arcWords[a] = domainBits[arcOther[a]].length;
+            residues[a] = new int[values[arcVariable[a]].length];
+            towards[arcOther[a]]++;
+        }
+        arcsTowards = new int[variables.length][];
+        for (int v = 0; v < variables.length; v++) {
+            arcsTowards[v] = new int[towards[v]];
+            towards[v] = 0;
+        }
+        for (int a = 0; a < count; a++) {
+            arcsTowards[arcOther[a]][towards[arcOther[a]]++] = a;
+        }
+    }
+
+    // Supports of the values of var over the values of other, re-indexed from the table to the domains being pruned
+    private long[] rowsFor(TableConstraint table, int var, int other) {
+        Variable variable = variables[var];
+        Variable otherVariable = variables[other];
+        int words = domainBits[other].length;
+        long[] rows = new long[values[var].length * words];
+        Object[] tableOtherValues = table.valuesOf(otherVariable);
+        int[] otherIndex = new int[tableOtherValues.length];
+        Arrays.fill(otherIndex, -1);
+        for (int j = 0; j < values[other].length; j++) {
+            int t = table.indexOf(otherVariable, values[other][j]);
+            if (t >= 0) {
+                otherIndex[t] = j;
+            }
+        }
+        long[] supports = table.supportsOf(variable);
+        int tableWords = table.supportWords(variable);
+        for (int i = 0; i < values[var].length; i++) {
+            int t = table.indexOf(variable, values[var][i]);
+            if (t < 0) {
+                continue;
+            }
+            for (int w = 0; w < tableWords; w++) {
+                for (long word = supports[t * tableWords + w]; word != 0; word &= word - 1) {
+                    int j = otherIndex[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    if (j >= 0) {
+                        rows[i * words + (j >>> 6)] |= 1L << j;
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Removes the values of the arc's variable left without a support in the other domain, true if any was removed
+    private boolean revise(int arc) {
+        revisions++;
+        int var = arcVariable[arc];
+        long[] rows = arcRows[arc];
+        long[] other = domainBits[arcOther[arc]];
+        long[] domain = domainBits[var];
+        int words = arcWords[arc];
+        int[] residue = residues[arc];
+        boolean changed = false;
+        for (int w = 0; w < domain.length; w++) {
+            for (long live = domain[w]; live != 0; live &= live - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(live);
+                int row = i * words;
+                if ((rows[row + residue[i]] & other[residue[i]]) != 0) {
+                    continue;
+                }
+                int support = findSupport(rows, row, other, words);
+                if (support >= 0) {
+                    residue[i] = support;
+                    continue;
+                }
+                domain[w] &= ~(1L << i);
+                domainSizes[var]--;
+                prunedValues++;
+                changed = true;
+            }
+        }
+        if (domainSizes[var] == 0) {
+            wipedOut = true;
+        }
+        return changed;
+    }
+
+    // First word where the row and the domain intersect, or -1
+    private static int findSupport(long[] rows, int row, long[] domain, int words) {
+        for (int k = 0; k < words; k++) {
+            if ((rows[row + k] & domain[k]) != 0) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private void writeBackDomains() {
+        for (int v = 0; v < variables.length; v++) {
+            if (domainSizes[v] == values[v].length) {
+                continue;
+            }
+            // domains may be immutable sets, so a pruned domain is replaced rather than edited
+            Set<Object> remaining = new LinkedHashSet<>(Math.max(16, domainSizes[v] * 2));
+            long[] bits = domainBits[v];
+            for (int w = 0; w < bits.length; w++) {
+                for (long live = bits[w]; live != 0; live &= live - 1) {
+                    remaining.add(values[v][(w << 6) + Long.numberOfTrailingZeros(live)]);
+                }
+            }
+            domains.put(variables[v], remaining);
+        }
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + Long.SIZE - 1) >>> 6;
+    }
+}
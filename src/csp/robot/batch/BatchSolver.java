@@ -0,0 +1,255 @@
+package csp.robot.batch;
+
+import csp.model.CSP;
+import csp.model.SearchLimits;
+import csp.model.SolveResult;
+import csp.model.Variable;
+import csp.robot.PortfolioSolver;
+import csp.robot.models.RobotGridCsp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves a stream of problem specs, one JSON object per line, in one JVM. A fixed pool of workers solves them;
+ * the reader blocks once parallelism + queueCapacity problems are read but not yet written out, so neither the
+ * queue nor the results waiting for their turn grow without bound. Every problem gets its own search with a
+ * deadline in its {@link SearchLimits}, which the search checks as it goes. Results are written as JSON lines, in
+ * input order or as they complete.
+ */
+public class BatchSolver {
+    public enum Status { SOLVED, NO_SOLUTION, TIMED_OUT, ERROR }
+
+    public enum OutputOrder { INPUT, COMPLETION }
+
+    public static class Summary {
+        private final int[] counts = new int[Status.values().length];
+
+        public int getCount(Status status) {
+            return counts[status.ordinal()];
+        }
+
+        public int getTotal() {
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder summary = new StringBuilder("problems=" + getTotal());
+            for (Status status : Status.values()) {
+                summary.append(", ").append(status.name().toLowerCase()).append("=").append(getCount(status));
+            }
+            return summary.toString();
+        }
+    }
+
+    private final int parallelism;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final OutputOrder outputOrder;
+    private PortfolioSolver.Configuration configuration = (csp, grid, seed) -> { };
+
+    public BatchSolver(int parallelism, int queueCapacity, long timeoutMillis, OutputOrder outputOrder) {
+        if (parallelism < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("parallelism must be positive and queueCapacity non-negative");
+        }
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        this.outputOrder = outputOrder;
+    }
+
+    // Strategies and heuristics of the search run for every problem, plain backtracking by default
+    public BatchSolver setConfiguration(PortfolioSolver.Configuration configuration) {
+        this.configuration = Objects.requireNonNull(configuration);
+        return this;
+    }
+
+    public Summary solve(BufferedReader input, Writer output) throws IOException {
+        PrintWriter out = output instanceof PrintWriter ? (PrintWriter) output : new PrintWriter(output);
+        int inFlight = parallelism + queueCapacity;
+        Semaphore permits = new Semaphore(inFlight);
+        Summary summary = new Summary();
+        ResultWriter writer = new ResultWriter(out, permits, summary);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, daemonThreads("batch-worker"));
+        try {
+            String line;
+            int sequence = 0;
+            int lineNumber = 0;
+            while ((line = input.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                permits.acquireUninterruptibly();
+                int taskSequence = sequence++;
+                int taskLine = lineNumber;
+                String spec = line;
+                workers.execute(() -> writer.write(taskSequence, solveLine(taskLine, spec)));
+            }
+            // every permit is back once the last result is written
+            permits.acquireUninterruptibly(inFlight);
+        } finally {
+            workers.shutdownNow();
+        }
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Writing the batch results failed");
+        }
+        return summary;
+    }
+
+    private Result solveLine(int lineNumber, String line) {
+        long start = System.nanoTime();
+        String id = null;
+        try {
+            ProblemSpec spec = ProblemSpec.parse(line);
+            id = spec.getId();
+            RobotGridCsp grid = spec.toRobotGridCsp();
+            CSP csp = grid.newCsp();
+            configuration.configure(csp, grid, 0L);
+            SearchLimits limits = timeoutMillis > 0
+                    ? SearchLimits.none().withDeadline(start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) : SearchLimits.none();
+            SolveResult result = grid.solveWithinLimits(csp, limits);
+            Status status = result.isSolved() ? Status.SOLVED : result.isInterrupted() ? Status.TIMED_OUT : Status.NO_SOLUTION;
+            return new Result(lineNumber, id, status, result.getSolution(), null, System.nanoTime() - start);
+        } catch (Throwable e) {
+            // errors too, e.g. running out of memory on a huge grid: every line must give back its permit
+            String message = Objects.nonNull(e.getMessage()) ? e.getMessage() : e.getClass().getName();
+            return new Result(lineNumber, id, Status.ERROR, null, message, System.nanoTime() - start);
+        }
+    }
+
+    private static final class Result {
+        final int lineNumber;
+        final String id;
+        final Status status;
+        final Map<Variable, Object> assignment;
+        final String error;
+        final long elapsedNanos;
+
+        Result(int lineNumber, String id, Status status, Map<Variable, Object> assignment, String error, long elapsedNanos) {
+            this.lineNumber = lineNumber;
+            this.id = id;
+            this.status = status;
+            this.assignment = assignment;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder("{\"line\":").append(lineNumber);
+            if (id != null) {
+                json.append(",\"id\":").append(Json.quote(id));
+            }
+            json.append(",\"status\":\"").append(status).append('"');
+            json.append(",\"elapsedMs\":").append(elapsedNanos / 1_000_000);
+            if (assignment != null) {
+                json.append(",\"pathLength\":").append(assignment.size()).append(",\"path\":[");
+                boolean first = true;
+                for (Object value : assignment.values()) {
+                    int[] position = (int[]) value;
+                    json.append(first ? "" : ",").append('[').append(position[0]).append(',').append(position[1]).append(']');
+                    first = false;
+                }
+                json.append(']');
+            }
+            if (error != null) {
+                json.append(",\"error\":").append(Json.quote(error));
+            }
+            return json.append('}').toString();
+        }
+    }
+
+    // Writes results in the chosen order and gives a permit back for every line written
+    private final class ResultWriter {
+        private final PrintWriter out;
+        private final Semaphore permits;
+        private final Summary summary;
+        // results that finished before the ones ahead of them in the input
+        private final Map<Integer, Result> pending = new HashMap<>();
+        private int nextSequence;
+
+        ResultWriter(PrintWriter out, Semaphore permits, Summary summary) {
+            this.out = out;
+            this.permits = permits;
+            this.summary = summary;
+        }
+
+        synchronized void write(int sequence, Result result) {
+            summary.counts[result.status.ordinal()]++;
+            if (outputOrder == OutputOrder.COMPLETION) {
+                emit(result);
+            } else {
+                pending.put(sequence, result);
+                Result next;
+                while ((next = pending.remove(nextSequence)) != null) {
+                    nextSequence++;
+                    emit(next);
+                }
+            }
+            out.flush();
+        }
+
+        private void emit(Result result) {
+            out.println(result.toJson());
+            permits.release();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // batch [input.jsonl|-] [--threads n] [--queue n] [--timeout ms] [--unordered]
+    public static void runFromCommandLine(String[] args) throws IOException {
+        String inputPath = "-";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = -1;
+        long timeout = 0;
+        OutputOrder order = OutputOrder.INPUT;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--queue": queue = Integer.parseInt(args[++i]); break;
+                case "--timeout": timeout = Long.parseLong(args[++i]); break;
+                case "--unordered": order = OutputOrder.COMPLETION; break;
+                default: inputPath = args[i];
+            }
+        }
+        BatchSolver solver = new BatchSolver(threads, queue < 0 ? threads * 2 : queue, timeout, order);
+        BufferedReader input = inputPath.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(inputPath), StandardCharsets.UTF_8);
+        try (input) {
+            Writer output = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            Summary summary = solver.solve(input, output);
+            System.err.println(summary);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package csp.robot.batch;
+
+import csp.robot.models.RobotGridCsp;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One grid problem of a batch, read from a JSON object such as
+ * {"id": "dock-7", "rows": 5, "cols": 5, "energyLimit": 5, "obstacles": [[1, 2], [3, 1]], "targets": [[0, 4]]}.
+ * The robot starts at cell (0, 0); id and obstacles are optional.
+ */
+public class ProblemSpec {
+    private final String id;
+    private final int rows, cols;
+    private final int energyLimit;
+    private final int[][] obstacles;
+    private final int[][] targets;
+
+    public ProblemSpec(String id, int rows, int cols, int energyLimit, int[][] obstacles, int[][] targets) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive: " + rows + "x" + cols);
+        }
+        checkCells("obstacle", obstacles, rows, cols);
+        checkCells("target", targets, rows, cols);
+        this.id = id;
+        this.rows = rows;
+        this.cols = cols;
+        this.energyLimit = energyLimit;
+        this.obstacles = obstacles;
+        this.targets = targets;
+    }
+
+    public static ProblemSpec parse(String line) {
+        Object json = Json.parse(line);
+        if (!(json instanceof Map)) {
+            throw new IllegalArgumentException("A problem spec must be a JSON object");
+        }
+        Map<?, ?> fields = (Map<?, ?>) json;
+        Object id = fields.get("id");
+        return new ProblemSpec(id == null ? null : id.toString(),
+                intField(fields, "rows"), intField(fields, "cols"), intField(fields, "energyLimit"),
+                cells(fields.get("obstacles"), "obstacles"), cells(fields.get("targets"), "targets"));
+    }
+
+    private static int intField(Map<?, ?> fields, String name) {
+        Object value = fields.get(name);
+        if (!(value instanceof Long)) {
+            throw new IllegalArgumentException("Missing or non-integer field '" + name + "'");
+        }
+        return Math.toIntExact((Long) value);
+    }
+
+    private static int[][] cells(Object value, String name) {
+        if (value == null) {
+            return new int[0][];
+        }
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Field '" + name + "' must be a list of [row, col] pairs");
+        }
+        List<?> list = (List<?>) value;
+        int[][] cells = new int[list.size()][];
+        for (int i = 0; i < cells.length; i++) {
+            Object cell = list.get(i);
+            if (!(cell instanceof List) || ((List<?>) cell).size() != 2
+                    || !(((List<?>) cell).get(0) instanceof Long) || !(((List<?>) cell).get(1) instanceof Long)) {
+                throw new IllegalArgumentException("Field '" + name + "' must be a list of [row, col] pairs");
+            }
+            List<?> pair = (List<?>) cell;
+            cells[i] = new int[]{Math.toIntExact((Long) pair.get(0)), Math.toIntExact((Long) pair.get(1))};
+        }
+        return cells;
+    }
+
+    private static void checkCells(String kind, int[][] cells, int rows, int cols) {
+        for (int[] cell : cells) {
+            if (cell[0] < 0 || cell[0] >= rows || cell[1] < 0 || cell[1] >= cols) {
+                throw new IllegalArgumentException("The " + kind + " [" + cell[0] + ", " + cell[1] + "] is outside the grid");
+            }
+        }
+    }
+
+    public RobotGridCsp toRobotGridCsp() {
+        boolean[][] restrictedCells = new boolean[rows][cols];
+        for (int[] obstacle : obstacles) {
+            restrictedCells[obstacle[0]][obstacle[1]] = true;
+        }
+        return new RobotGridCsp(rows, cols, energyLimit, restrictedCells, targets);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getEnergyLimit() {
+        return energyLimit;
+    }
+
+    public int[][] getObstacles() {
+        return obstacles;
+    }
+
+    public int[][] getTargets() {
+        return targets;
+    }
+}
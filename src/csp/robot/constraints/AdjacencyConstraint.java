@@ -1,6 +1,9 @@
 package csp.robot.constraints;
 
+import csp.model.CompiledCsp;
 import csp.model.Constraint;
+import csp.model.IntAssignment;
+import csp.model.IntConstraint;
 import csp.model.Variable;
 
 import java.util.Arrays;
@@ -33,4 +36,27 @@ public class AdjacencyConstraint implements Constraint {
     public List<Variable> getVariables() {
         return Arrays.asList(var1, var2);
     }
+
+    @Override
+    public IntConstraint compile(CompiledCsp compiled) {
+        int id1 = compiled.requireId(var1);
+        int id2 = compiled.requireId(var2);
+        int[] scope = {id1, id2};
+        return new IntConstraint() {
+            @Override
+            public boolean isSatisfied(IntAssignment assignment, int assigned) {
+                if (!assignment.isAssigned(id1) || !assignment.isAssigned(id2)) {
+                    return true;
+                }
+                int[] pos1 = (int[]) compiled.getValue(id1, assignment.valueOf(id1));
+                int[] pos2 = (int[]) compiled.getValue(id2, assignment.valueOf(id2));
+                return Math.abs(pos1[0] - pos2[0]) + Math.abs(pos1[1] - pos2[1]) == 1;
+            }
+
+            @Override
+            public int[] getScope() {
+                return scope;
+            }
+        };
+    }
 }
@@ -1,6 +1,9 @@
 package csp.robot.constraints;
 
+import csp.model.CompiledCsp;
 import csp.model.Constraint;
+import csp.model.IntAssignment;
+import csp.model.IntConstraint;
 import csp.model.Variable;
 
 import java.util.Collections;
@@ -26,4 +29,19 @@ public class EnergyConstraint implements Constraint {
     public List<Variable> getVariables() {
         return Collections.emptyList();
     }
+
+    @Override
+    public IntConstraint compile(CompiledCsp compiled) {
+        return new IntConstraint() {
+            @Override
+            public boolean isSatisfied(IntAssignment assignment, int assigned) {
+                return assignment.size() <= energyLimit;
+            }
+
+            @Override
+            public int[] getScope() {
+                return new int[0];
+            }
+        };
+    }
 }
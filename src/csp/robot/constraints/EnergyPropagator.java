@@ -0,0 +1,66 @@
+package csp.robot.constraints;
+
+import csp.model.DomainEvent;
+import csp.model.PropagationEngine;
+import csp.model.Propagator;
+import csp.model.Variable;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Incremental form of {@link EnergyConstraint} together with the targets: every assigned cell costs one unit of
+ * energy and every target still to be reached costs at least one more, so a path fails as soon as the cells it
+ * holds plus the targets it misses exceed the limit, not only once it has run out. Two trailed counters follow
+ * the assignments, each event and each check is O(1).
+ */
+public class EnergyPropagator implements Propagator {
+    private static final int ASSIGNED = 0;
+    private static final int REACHED = 1;
+
+    private final int energyLimit;
+    private final List<Variable> targets;
+    private final int[] counters = new int[2];
+    private boolean[] isTarget;
+    private int targetCount;
+    // targets without a cell variable in the search, they can never be reached
+    private int unreachable;
+
+    // A null target stands for a restricted target cell
+    public EnergyPropagator(int energyLimit, List<Variable> targets) {
+        this.energyLimit = energyLimit;
+        this.targets = targets;
+    }
+
+    @Override
+    public void attach(PropagationEngine engine) {
+        counters[ASSIGNED] = 0;
+        counters[REACHED] = 0;
+        isTarget = new boolean[engine.getVariableCount()];
+        targetCount = 0;
+        unreachable = 0;
+        for (Variable target : targets) {
+            int id = Objects.isNull(target) ? -1 : engine.idOf(target);
+            if (id < 0) {
+                unreachable++;
+            } else if (!isTarget[id]) {
+                isTarget[id] = true;
+                targetCount++;
+            }
+        }
+        engine.subscribeAll(this, DomainEvent.ASSIGN);
+    }
+
+    @Override
+    public void onEvent(PropagationEngine engine, int variable, DomainEvent event) {
+        engine.getTrail().add(counters, ASSIGNED, 1);
+        if (isTarget[variable]) {
+            engine.getTrail().add(counters, REACHED, 1);
+        }
+    }
+
+    @Override
+    public boolean propagate(PropagationEngine engine) {
+        return unreachable == 0 && counters[ASSIGNED] + targetCount - counters[REACHED] <= energyLimit;
+    }
+}
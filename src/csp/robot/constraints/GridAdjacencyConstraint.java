@@ -0,0 +1,125 @@
+package csp.robot.constraints;
+
+import csp.model.CompiledCsp;
+import csp.model.Constraint;
+import csp.model.IntAssignment;
+import csp.model.IntConstraint;
+import csp.model.Variable;
+import csp.robot.models.GridVariableRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adjacency constraints of a whole grid in one object: every pair of neighboring free cells
+ * must hold adjacent positions. The pairs are derived from the grid instead of being materialized,
+ * so the constraint is global and checks the neighbors of the assigned cell incrementally.
+ */
+public class GridAdjacencyConstraint implements Constraint {
+    private static final int[][] NEIGHBOR_OFFSETS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    private final GridVariableRegistry registry;
+
+    public GridAdjacencyConstraint(GridVariableRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean isSatisfied(Map<Variable, Object> assignment) {
+        for (Variable var : assignment.keySet()) {
+            if (!isSatisfied(assignment, var)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isSatisfied(Map<Variable, Object> assignment, Variable assigned) {
+        int[] cell = GridVariableRegistry.positionOf(assigned);
+        int[] pos = (int[]) assignment.get(assigned);
+        if (pos == null) {
+            return true;
+        }
+        for (int[] offset : NEIGHBOR_OFFSETS) {
+            Variable neighbor = registry.variableAt(cell[0] + offset[0], cell[1] + offset[1]);
+            if (neighbor != null) {
+                int[] neighborPos = (int[]) assignment.get(neighbor);
+                if (neighborPos != null && Math.abs(pos[0] - neighborPos[0]) + Math.abs(pos[1] - neighborPos[1]) != 1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<Variable> getVariables() {
+        return Collections.emptyList();
+    }
+
+    // Materializes one AdjacencyConstraint per ordered pair of neighboring free cells,
+    // for algorithms such as AC-4 that work on explicit binary constraints
+    public List<Constraint> toBinaryConstraints() {
+        List<Constraint> constraints = new ArrayList<>();
+        for (int row = 0; row < registry.getRows(); row++) {
+            for (int col = 0; col < registry.getCols(); col++) {
+                Variable currentVar = registry.variableAt(row, col);
+                if (currentVar == null) {
+                    continue;
+                }
+                for (int[] offset : NEIGHBOR_OFFSETS) {
+                    Variable adjacentVar = registry.variableAt(row + offset[0], col + offset[1]);
+                    if (adjacentVar != null) {
+                        constraints.add(new AdjacencyConstraint(currentVar, adjacentVar));
+                    }
+                }
+            }
+        }
+        return constraints;
+    }
+
+    @Override
+    public IntConstraint compile(CompiledCsp compiled) {
+        int rows = registry.getRows();
+        int cols = registry.getCols();
+        int[] idOfCell = new int[rows * cols];
+        Arrays.fill(idOfCell, -1);
+        int[] cellOfId = new int[compiled.getVariableCount()];
+        for (int id = 0; id < compiled.getVariableCount(); id++) {
+            int[] cell = GridVariableRegistry.positionOf(compiled.getVariable(id));
+            cellOfId[id] = cell[0] * cols + cell[1];
+            idOfCell[cellOfId[id]] = id;
+        }
+        return new IntConstraint() {
+            @Override
+            public boolean isSatisfied(IntAssignment assignment, int assigned) {
+                int cell = cellOfId[assigned];
+                int row = cell / cols, col = cell % cols;
+                int[] pos = (int[]) compiled.getValue(assigned, assignment.valueOf(assigned));
+                for (int[] offset : NEIGHBOR_OFFSETS) {
+                    int r = row + offset[0], c = col + offset[1];
+                    if (r < 0 || r >= rows || c < 0 || c >= cols) {
+                        continue;
+                    }
+                    int neighbor = idOfCell[r * cols + c];
+                    if (neighbor >= 0 && assignment.isAssigned(neighbor)) {
+                        int[] neighborPos = (int[]) compiled.getValue(neighbor, assignment.valueOf(neighbor));
+                        if (Math.abs(pos[0] - neighborPos[0]) + Math.abs(pos[1] - neighborPos[1]) != 1) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public int[] getScope() {
+                return new int[0];
+            }
+        };
+    }
+}
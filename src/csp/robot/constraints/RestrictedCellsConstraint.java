@@ -1,35 +1,66 @@
 package csp.robot.constraints;
 
+import csp.model.CompiledCsp;
 import csp.model.Constraint;
+import csp.model.IntAssignment;
+import csp.model.IntConstraint;
 import csp.model.Variable;
+import csp.robot.models.ArrayOccupancyGrid;
+import csp.robot.models.OccupancyGrid;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public class RestrictedCellsConstraint implements Constraint {
-    private final boolean[][] restrictedCells;
+    private final OccupancyGrid grid;
 
     public RestrictedCellsConstraint(boolean[][] restrictedCells) {
-        this.restrictedCells = restrictedCells;
+        this(new ArrayOccupancyGrid(restrictedCells.length, restrictedCells.length == 0 ? 0 : restrictedCells[0].length, restrictedCells));
+    }
+
+    public RestrictedCellsConstraint(OccupancyGrid grid) {
+        this.grid = grid;
     }
 
     @Override
     public boolean isSatisfied(Map<Variable, Object> assignment) {
         for (Object position : assignment.values()) {
             int[] pos = (int[]) position;
-            if (restrictedCells[pos[0]][pos[1]]) {
+            if (grid.isRestricted(pos[0], pos[1])) {
                 return false; // Fails if any cell in the path is restricted
             }
         }
         return true;
     }
 
+    // Cells assigned before were checked when they were assigned, only the new one can be restricted
+    @Override
+    public boolean isSatisfied(Map<Variable, Object> assignment, Variable assigned) {
+        int[] pos = (int[]) assignment.get(assigned);
+        return pos == null || !grid.isRestricted(pos[0], pos[1]);
+    }
+
     @Override
     public List<Variable> getVariables() {
         return Collections.emptyList();
 
     }
 
+    @Override
+    public IntConstraint compile(CompiledCsp compiled) {
+        return new IntConstraint() {
+            @Override
+            public boolean isSatisfied(IntAssignment assignment, int assigned) {
+                // earlier cells of the path were checked when they were assigned
+                int[] pos = (int[]) compiled.getValue(assigned, assignment.valueOf(assigned));
+                return !grid.isRestricted(pos[0], pos[1]);
+            }
 
+            @Override
+            public int[] getScope() {
+                return new int[0];
+            }
+        };
+    }
 }
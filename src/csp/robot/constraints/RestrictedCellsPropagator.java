@@ -0,0 +1,45 @@
+package csp.robot.constraints;
+
+import csp.model.IntDomain;
+import csp.model.PropagationEngine;
+import csp.model.Propagator;
+import csp.robot.models.OccupancyGrid;
+
+/**
+ * Propagator form of {@link RestrictedCellsConstraint}: restricted positions are removed from every domain once,
+ * when the search starts, and the search never tries them afterwards, so nothing is left to check per assignment.
+ * The grid must not change while a search runs, as for the constraint.
+ */
+public class RestrictedCellsPropagator implements Propagator {
+    private final OccupancyGrid grid;
+    private boolean pending;
+
+    public RestrictedCellsPropagator(OccupancyGrid grid) {
+        this.grid = grid;
+    }
+
+    @Override
+    public void attach(PropagationEngine engine) {
+        // no events to follow, the engine runs every propagator once at the start
+        pending = true;
+    }
+
+    @Override
+    public boolean propagate(PropagationEngine engine) {
+        if (!pending) {
+            return true;
+        }
+        pending = false;
+        for (int var = 0; var < engine.getVariableCount(); var++) {
+            IntDomain domain = engine.getDomain(var);
+            for (int k = domain.size() - 1; k >= 0; k--) {
+                int value = domain.get(k);
+                int[] pos = (int[]) engine.getValue(var, value);
+                if (grid.isRestricted(pos[0], pos[1]) && !engine.remove(var, value)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package csp.robot.models;
+
+/**
+ * Occupancy grid over a {@code boolean[][]}, shared with the caller: changes on either side are seen by the other.
+ */
+public class ArrayOccupancyGrid implements OccupancyGrid {
+    private final int rows, cols;
+    private final boolean[][] restrictedCells;
+
+    public ArrayOccupancyGrid(int rows, int cols, boolean[][] restrictedCells) {
+        this.rows = rows;
+        this.cols = cols;
+        this.restrictedCells = restrictedCells;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isRestricted(int row, int col) {
+        return restrictedCells[row][col];
+    }
+
+    @Override
+    public void setRestricted(int row, int col, boolean restricted) {
+        restrictedCells[row][col] = restricted;
+    }
+
+    @Override
+    public boolean[][] toBooleanArray() {
+        return restrictedCells;
+    }
+}
@@ -0,0 +1,88 @@
+package csp.robot.models;
+
+import java.nio.LongBuffer;
+
+/**
+ * Occupancy grid packed one bit per cell, row-major: cell row * cols + col is bit (cell & 63) of word cell >>> 6.
+ * The words live in a {@link LongBuffer}, which can wrap a heap array or a memory-mapped file, so a large map
+ * costs no per-cell heap objects. A read-only buffer is copied to the heap the first time a cell is changed.
+ */
+public class BitPackedOccupancyGrid implements OccupancyGrid {
+    private final int rows, cols;
+    // replaced by a heap copy on the first change when it is read-only, e.g. mapped from a file
+    private LongBuffer words;
+
+    public BitPackedOccupancyGrid(int rows, int cols, LongBuffer words) {
+        if (words.capacity() < wordCount(rows, cols)) {
+            throw new IllegalArgumentException("A " + rows + "x" + cols + " grid needs " + wordCount(rows, cols)
+                    + " words, got " + words.capacity());
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.words = words;
+    }
+
+    public BitPackedOccupancyGrid(int rows, int cols) {
+        this(rows, cols, LongBuffer.wrap(new long[wordCount(rows, cols)]));
+    }
+
+    public static int wordCount(int rows, int cols) {
+        return (int) (((long) rows * cols + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isRestricted(int row, int col) {
+        long cell = (long) row * cols + col;
+        return (words.get((int) (cell >>> 6)) & (1L << cell)) != 0;
+    }
+
+    @Override
+    public void setRestricted(int row, int col, boolean restricted) {
+        long cell = (long) row * cols + col;
+        int index = (int) (cell >>> 6);
+        if (words.isReadOnly()) {
+            long[] copy = new long[wordCount(rows, cols)];
+            words.get(0, copy);
+            words = LongBuffer.wrap(copy);
+        }
+        long word = words.get(index);
+        words.put(index, restricted ? word | (1L << cell) : word & ~(1L << cell));
+    }
+
+    // Counts the restricted bits of the row a word at a time
+    @Override
+    public int freeCellsInRow(int row) {
+        long first = (long) row * cols;
+        long end = first + cols;
+        int restricted = 0;
+        long cell = first;
+        while (cell < end) {
+            int index = (int) (cell >>> 6);
+            long word = words.get(index);
+            int from = (int) (cell & 63);
+            int to = (int) Math.min(64, end - ((long) index << 6));
+            long mask = (to == 64 ? -1L : (1L << to) - 1) & (-1L << from);
+            restricted += Long.bitCount(word & mask);
+            cell = ((long) index + 1) << 6;
+        }
+        return cols - restricted;
+    }
+
+    public long getWord(int index) {
+        return words.get(index);
+    }
+
+    public int getWordCount() {
+        return wordCount(rows, cols);
+    }
+}
@@ -0,0 +1,129 @@
+package csp.robot.models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary grid file: a little-endian header (magic "CSPG", version, rows, cols, energy limit, target count and
+ * the targets as row/col pairs), padded to 8 bytes, followed by the restricted cells packed as in
+ * {@link BitPackedOccupancyGrid}. Loading maps the file instead of reading it, so the bits stay in the page cache
+ * and are shared by every process that maps the same file. The mapping is read-only: changing an obstacle on a loaded
+ * grid copies its bits to the heap first and never touches the file.
+ */
+public class GridFile {
+    private static final int MAGIC = 0x47505343;  // "CSPG" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 6 * Integer.BYTES;
+
+    private GridFile() {
+    }
+
+    public static void write(Path path, OccupancyGrid grid, int energyLimit, int[][] targets) throws IOException {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        ByteBuffer header = ByteBuffer.allocate(Math.toIntExact(headerBytes(targets.length))).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(energyLimit).putInt(targets.length);
+        for (int[] target : targets) {
+            header.putInt(target[0]).putInt(target[1]);
+        }
+        header.rewind();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            ByteBuffer words = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+            int wordCount = BitPackedOccupancyGrid.wordCount(rows, cols);
+            long cellCount = (long) rows * cols;
+            for (int index = 0; index < wordCount; index++) {
+                long word = 0L;
+                if (grid instanceof BitPackedOccupancyGrid) {
+                    word = ((BitPackedOccupancyGrid) grid).getWord(index);
+                } else {
+                    long first = (long) index << 6;
+                    for (long cell = first; cell < Math.min(first + 64, cellCount); cell++) {
+                        if (grid.isRestricted((int) (cell / cols), (int) (cell % cols))) {
+                            word |= 1L << cell;
+                        }
+                    }
+                }
+                words.putLong(word);
+                if (!words.hasRemaining()) {
+                    drain(channel, words);
+                }
+            }
+            drain(channel, words);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public static RobotGridCsp load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, fixed, 0);
+            if (fixed.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a grid file");
+            }
+            if (fixed.getInt(4) != VERSION) {
+                throw new IOException("Unsupported grid file version " + fixed.getInt(4) + " in " + path);
+            }
+            int rows = fixed.getInt(8);
+            int cols = fixed.getInt(12);
+            int energyLimit = fixed.getInt(16);
+            int targetCount = fixed.getInt(20);
+            if (rows <= 0 || cols <= 0 || targetCount < 0) {
+                throw new IOException("Corrupt grid file header in " + path);
+            }
+            // the header is not trusted: sizes are checked against the file in long arithmetic before allocating
+            long bitsOffset = headerBytes(targetCount);
+            long bitsLength = ((long) rows * cols + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+            if (bitsOffset > Integer.MAX_VALUE || bitsLength > Integer.MAX_VALUE) {
+                throw new IOException("Grid of " + rows + "x" + cols + " with " + targetCount + " targets is too large in " + path);
+            }
+            if (channel.size() < bitsOffset + bitsLength) {
+                throw new IOException("Truncated grid file " + path);
+            }
+            ByteBuffer targetBytes = ByteBuffer.allocate((int) (bitsOffset - FIXED_HEADER_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, targetBytes, FIXED_HEADER_BYTES);
+            int[][] targets = new int[targetCount][];
+            for (int i = 0; i < targetCount; i++) {
+                int row = targetBytes.getInt(i * 8);
+                int col = targetBytes.getInt(i * 8 + 4);
+                if (row < 0 || row >= rows || col < 0 || col >= cols) {
+                    throw new IOException("Target " + row + "," + col + " outside the " + rows + "x" + cols + " grid in " + path);
+                }
+                targets[i] = new int[]{row, col};
+            }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer bits = channel.map(FileChannel.MapMode.READ_ONLY, bitsOffset, bitsLength);
+            OccupancyGrid grid = new BitPackedOccupancyGrid(rows, cols,
+                    bits.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().asReadOnlyBuffer());
+            return new RobotGridCsp(grid, energyLimit, targets);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of grid file");
+            }
+        }
+    }
+
+    private static long headerBytes(int targetCount) {
+        long bytes = FIXED_HEADER_BYTES + (long) targetCount * 2 * Integer.BYTES;
+        return (bytes + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+    }
+}
@@ -0,0 +1,106 @@
+package csp.robot.models;
+
+import csp.model.Variable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Legal moves ("up", "down", "left", "right") of every free cell, derived on demand from the grid.
+ * A cell's move set only depends on which of its four neighbors are free,
+ * so the sixteen possible sets are shared instead of being built per cell.
+ */
+public class GridMoveDomains extends AbstractMap<Variable, Set<Object>> {
+    private static final String[] DIRECTIONS = {"up", "down", "left", "right"};
+    private static final int[][] OFFSETS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final Set<Object>[] MOVE_SETS = createMoveSets();
+
+    private final GridVariableRegistry registry;
+
+    public GridMoveDomains(GridVariableRegistry registry) {
+        this.registry = registry;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Set<Object>[] createMoveSets() {
+        Set<Object>[] sets = new Set[1 << DIRECTIONS.length];
+        for (int mask = 0; mask < sets.length; mask++) {
+            Set<Object> moves = new LinkedHashSet<>();
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                if ((mask & (1 << d)) != 0) {
+                    moves.add(DIRECTIONS[d]);
+                }
+            }
+            sets[mask] = Collections.unmodifiableSet(moves);
+        }
+        return sets;
+    }
+
+    public Set<Object> movesAt(int row, int col) {
+        int mask = 0;
+        for (int d = 0; d < OFFSETS.length; d++) {
+            if (registry.isFree(row + OFFSETS[d][0], col + OFFSETS[d][1])) {
+                mask |= 1 << d;
+            }
+        }
+        return MOVE_SETS[mask];
+    }
+
+    @Override
+    public Set<Object> get(Object key) {
+        if (!(key instanceof Variable)) {
+            return null;
+        }
+        int[] cell = GridVariableRegistry.positionOf((Variable) key);
+        if (!registry.isFree(cell[0], cell[1])) {
+            return null;
+        }
+        return movesAt(cell[0], cell[1]);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return registry.getFreeCellCount();
+    }
+
+    @Override
+    public Set<Entry<Variable, Set<Object>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Variable, Set<Object>>> iterator() {
+                Iterator<Variable> variables = registry.getVariables().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return variables.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Variable, Set<Object>> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Variable variable = variables.next();
+                        int[] cell = GridVariableRegistry.positionOf(variable);
+                        return new SimpleImmutableEntry<>(variable, movesAt(cell[0], cell[1]));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return registry.getFreeCellCount();
+            }
+        };
+    }
+}
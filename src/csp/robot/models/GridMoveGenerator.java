@@ -0,0 +1,127 @@
+package csp.robot.models;
+
+/**
+ * Moves between the free cells of a grid. Free cells get dense ids in row-major order. Only a bitset of the free
+ * cells and the number of free cells before each of its words are stored, about 1.5 bits per cell, so a
+ * 10000x10000 map costs some 20 MB instead of an int per cell. The id of a cell is the rank of its bit and
+ * the moves of a cell are read from the bitset, with no allocation. Built once per map.
+ * CSR neighbor tables (a neighbor list per free cell, plus the row and column of every id) answer the same
+ * queries with one array read each, but cost some 28 bytes per free cell, several hundred MB on the large maps
+ * the grid files hold; computing the neighbor from coordinates costs one rank, a popcount.
+ */
+public class GridMoveGenerator {
+    public static final int NO_CELL = -1;
+    // the directions of neighbor(row, col, direction), in the order of the "up", "down", "left", "right" moves
+    public static final int DIRECTIONS = 4;
+    private static final int[] ROW_STEPS = {-1, 1, 0, 0};
+    private static final int[] COL_STEPS = {0, 0, -1, 1};
+
+    private final int rows;
+    private final int cols;
+    // bit cell of word cell / 64 is set for free cells, cell being row * cols + col
+    private final long[] freeBits;
+    // freeBefore[w] is the number of free cells in the words before w
+    private final int[] freeBefore;
+    private final int cellCount;
+
+    public GridMoveGenerator(boolean[][] restrictedCells, int rows, int cols) {
+        this(new ArrayOccupancyGrid(rows, cols, restrictedCells));
+    }
+
+    public GridMoveGenerator(OccupancyGrid grid) {
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
+        long cells = (long) rows * cols;
+        this.freeBits = new long[(int) ((cells + Long.SIZE - 1) >>> 6)];
+        this.freeBefore = new int[freeBits.length];
+        long cell = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++, cell++) {
+                if (!grid.isRestricted(row, col)) {
+                    freeBits[(int) (cell >>> 6)] |= 1L << cell;
+                }
+            }
+        }
+        int free = 0;
+        for (int w = 0; w < freeBits.length; w++) {
+            freeBefore[w] = free;
+            free += Long.bitCount(freeBits[w]);
+        }
+        this.cellCount = free;
+    }
+
+    // Id of a free cell, or NO_CELL for restricted cells and cells outside the grid
+    public int idOf(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return NO_CELL;
+        }
+        long cell = (long) row * cols + col;
+        int w = (int) (cell >>> 6);
+        long bit = 1L << cell;
+        if ((freeBits[w] & bit) == 0) {
+            return NO_CELL;
+        }
+        return freeBefore[w] + Long.bitCount(freeBits[w] & (bit - 1));
+    }
+
+    // Id of the free cell one move away in the direction, or NO_CELL
+    public int neighbor(int row, int col, int direction) {
+        return idOf(row + ROW_STEPS[direction], col + COL_STEPS[direction]);
+    }
+
+    // Offsets of one move in the direction
+    public static int rowStep(int direction) {
+        return ROW_STEPS[direction];
+    }
+
+    public static int colStep(int direction) {
+        return COL_STEPS[direction];
+    }
+
+    // Row and column of an id are found by a binary search over the words, so they cost O(log cells)
+    public int rowOf(int id) {
+        return (int) (cellOf(id) / cols);
+    }
+
+    public int colOf(int id) {
+        return (int) (cellOf(id) % cols);
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public int degree(int id) {
+        long cell = cellOf(id);
+        int row = (int) (cell / cols);
+        int col = (int) (cell % cols);
+        int degree = 0;
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            if (neighbor(row, col, direction) != NO_CELL) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    private long cellOf(int id) {
+        if (id < 0 || id >= cellCount) {
+            throw new IndexOutOfBoundsException("Cell id: " + id + ", cells: " + cellCount);
+        }
+        // last word whose free cells start at or before id
+        int low = 0, high = freeBits.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (freeBefore[mid] <= id) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        long word = freeBits[low];
+        for (int skip = id - freeBefore[low]; skip > 0; skip--) {
+            word &= word - 1;
+        }
+        return ((long) low << 6) + Long.numberOfTrailingZeros(word);
+    }
+}
@@ -0,0 +1,123 @@
+package csp.robot.models;
+
+import csp.model.SearchListener;
+import csp.model.Variable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Visited cells and reached targets of a running grid search, kept as bitboards ({@code long[]} words, one bit
+ * per cell) and updated on every assign and backtrack. Whether all targets are reached is then a comparison of
+ * counters instead of a scan of the path. Register it on the search it follows, it syncs to the assignment when
+ * the search starts.
+ */
+public class GridSearchState implements SearchListener {
+    private final int cols;
+    private final int[][] targets;
+    private final long[] visited;
+    // cells holding at least one target
+    private final long[] targetCells;
+    // bit i set when target i is visited, targets sharing a cell share the bit of the first one
+    private final long[] reachedTargets;
+    private final int distinctTargets;
+    private int reachedCount;
+
+    public GridSearchState(int rows, int cols, int[][] targets) {
+        this.cols = cols;
+        this.targets = targets;
+        int words = (rows * cols + Long.SIZE - 1) / Long.SIZE;
+        this.visited = new long[words];
+        this.targetCells = new long[words];
+        this.reachedTargets = new long[(targets.length + Long.SIZE - 1) / Long.SIZE];
+        int distinct = 0;
+        for (int[] target : targets) {
+            int cell = target[0] * cols + target[1];
+            if (!isSet(targetCells, cell)) {
+                targetCells[cell >>> 6] |= 1L << cell;
+                distinct++;
+            }
+        }
+        this.distinctTargets = distinct;
+    }
+
+    @Override
+    public void onSearchStart(Map<Variable, Object> assignment) {
+        Arrays.fill(visited, 0L);
+        Arrays.fill(reachedTargets, 0L);
+        reachedCount = 0;
+        for (Object value : assignment.values()) {
+            int[] position = (int[]) value;
+            visit(position[0], position[1]);
+        }
+    }
+
+    @Override
+    public void onAssign(Variable variable, Object value) {
+        int[] position = (int[]) value;
+        visit(position[0], position[1]);
+    }
+
+    @Override
+    public void onUnassign(Variable variable) {
+        // a cell variable's value is its own position
+        int[] position = GridVariableRegistry.positionOf(variable);
+        leave(position[0], position[1]);
+    }
+
+    private void visit(int row, int col) {
+        int cell = row * cols + col;
+        if (isSet(visited, cell)) {
+            return;
+        }
+        visited[cell >>> 6] |= 1L << cell;
+        if (isSet(targetCells, cell)) {
+            int target = targetIndex(row, col);
+            reachedTargets[target >>> 6] |= 1L << target;
+            reachedCount++;
+        }
+    }
+
+    private void leave(int row, int col) {
+        int cell = row * cols + col;
+        if (!isSet(visited, cell)) {
+            return;
+        }
+        visited[cell >>> 6] &= ~(1L << cell);
+        if (isSet(targetCells, cell)) {
+            int target = targetIndex(row, col);
+            reachedTargets[target >>> 6] &= ~(1L << target);
+            reachedCount--;
+        }
+    }
+
+    // Only called for target cells, so the scan is paid once per target visit and not per node
+    private int targetIndex(int row, int col) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i][0] == row && targets[i][1] == col) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Cell " + row + "," + col + " is not a target");
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isVisited(int row, int col) {
+        return isSet(visited, row * cols + col);
+    }
+
+    public boolean isTargetReached(int target) {
+        return isSet(reachedTargets, target);
+    }
+
+    public boolean allTargetsReached() {
+        return reachedCount == distinctTargets;
+    }
+
+    public int getReachedCount() {
+        return reachedCount;
+    }
+}
@@ -0,0 +1,26 @@
+package csp.robot.models;
+
+import csp.model.StateHasher;
+import csp.model.Variable;
+import csp.model.ZobristStateHasher;
+
+/**
+ * Zobrist keys of a grid search, one per cell. The value of a cell variable is its position, so a search state
+ * hashes to the set of visited cells, which also fixes the reached targets and the energy left.
+ * Keys are derived from the cell index, so large grids do not need a key table.
+ */
+public class GridStateHasher implements StateHasher {
+    private final int cols;
+    private final long seed;
+
+    public GridStateHasher(int cols, long seed) {
+        this.cols = cols;
+        this.seed = seed;
+    }
+
+    @Override
+    public long keyOf(Variable variable, Object value) {
+        int[] position = (int[]) value;
+        return ZobristStateHasher.mix(seed + (long) position[0] * cols + position[1]);
+    }
+}
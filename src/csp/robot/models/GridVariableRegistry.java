@@ -0,0 +1,169 @@
+package csp.robot.models;
+
+import csp.model.Variable;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Coordinate-indexed registry of the cell variables of a grid. Only the free-cell counts per row are built
+ * up front, a cell variable is created the first time it is looked up and then reused. Cells can be restricted
+ * or freed later on; the registry and the grid share the occupancy grid, so both see the change.
+ */
+public class GridVariableRegistry {
+    private final int rows, cols;
+    private final OccupancyGrid grid;
+    // freeBeforeRow[r] is the number of free cells in the rows above r
+    private final int[] freeBeforeRow;
+    private final AtomicReferenceArray<AtomicReferenceArray<Variable>> cells;
+    private final List<Variable> variables = new FreeCellVariables();
+
+    public GridVariableRegistry(int rows, int cols, boolean[][] restrictedCells) {
+        this(new ArrayOccupancyGrid(rows, cols, restrictedCells));
+    }
+
+    public GridVariableRegistry(OccupancyGrid grid) {
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
+        this.grid = grid;
+        this.freeBeforeRow = new int[rows + 1];
+        for (int row = 0; row < rows; row++) {
+            freeBeforeRow[row + 1] = freeBeforeRow[row] + grid.freeCellsInRow(row);
+        }
+        this.cells = new AtomicReferenceArray<>(rows);
+    }
+
+    public static String cellName(int row, int col) {
+        return "Cell_" + row + "_" + col;
+    }
+
+    public boolean isFree(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols && !grid.isRestricted(row, col);
+    }
+
+    // Returns the variable of a free cell, or null for restricted and out of grid cells
+    public Variable variableAt(int row, int col) {
+        if (!isFree(row, col)) {
+            return null;
+        }
+        AtomicReferenceArray<Variable> rowCells = cells.get(row);
+        if (rowCells == null) {
+            cells.compareAndSet(row, null, new AtomicReferenceArray<>(cols));
+            rowCells = cells.get(row);
+        }
+        Variable variable = rowCells.get(col);
+        if (variable == null) {
+            Variable cell = new Variable(cellName(row, col));
+            cell.setDomain(List.of(new int[]{row, col}));  // Each cell has a single domain value (its position)
+            variable = rowCells.compareAndSet(col, null, cell) ? cell : rowCells.get(col);
+        }
+        return variable;
+    }
+
+    // Position of a cell variable, read from its single domain value
+    public static int[] positionOf(Variable variable) {
+        return (int[]) variable.getDomain().get(0);
+    }
+
+    // Marks a cell free or restricted; the variable of a cell that becomes restricted is kept for when it is freed
+    public void setRestricted(int row, int col, boolean restricted) {
+        if (grid.isRestricted(row, col) == restricted) {
+            return;
+        }
+        grid.setRestricted(row, col, restricted);
+        int delta = restricted ? -1 : 1;
+        for (int r = row + 1; r <= rows; r++) {
+            freeBeforeRow[r] += delta;
+        }
+    }
+
+    public int getFreeCellCount() {
+        return freeBeforeRow[rows];
+    }
+
+    // Variables of all free cells in row-major order, created lazily while iterating
+    public List<Variable> getVariables() {
+        return variables;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    private class FreeCellVariables extends AbstractList<Variable> {
+        @Override
+        public Variable get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            // last row whose free cells start at or before index
+            int low = 0, high = rows - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (freeBeforeRow[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int remaining = index - freeBeforeRow[low];
+            for (int col = 0; col < cols; col++) {
+                if (!grid.isRestricted(low, col) && remaining-- == 0) {
+                    return variableAt(low, col);
+                }
+            }
+            throw new IllegalStateException("Free cell counts are out of date");
+        }
+
+        @Override
+        public int size() {
+            return getFreeCellCount();
+        }
+
+        @Override
+        public Iterator<Variable> iterator() {
+            return new Iterator<>() {
+                private int row, col = -1;
+
+                {
+                    if (cols == 0) {
+                        row = rows;
+                    } else {
+                        advance();
+                    }
+                }
+
+                private void advance() {
+                    do {
+                        if (++col == cols) {
+                            col = 0;
+                            row++;
+                        }
+                    } while (row < rows && grid.isRestricted(row, col));
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return row < rows;
+                }
+
+                @Override
+                public Variable next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Variable variable = variableAt(row, col);
+                    advance();
+                    return variable;
+                }
+            };
+        }
+    }
+}
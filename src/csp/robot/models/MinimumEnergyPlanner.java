@@ -0,0 +1,178 @@
+package csp.robot.models;
+
+import csp.model.CSP;
+import csp.model.CancellationToken;
+import csp.model.Constraint;
+import csp.model.Incumbent;
+import csp.model.Variable;
+import csp.robot.utils.DistanceFieldCache;
+import csp.robot.utils.GridDistanceField;
+import csp.robot.utils.GridFingerprint;
+import csp.robot.utils.TargetLowerBound;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Shortest walk from the start cell through every target, found by branch and bound on the order the targets are
+ * visited in. Between two targets the robot follows a shortest path, so an order costs the sum of the obstacle-aware
+ * distances along it, and the rest of a partial order is bounded by {@link TargetLowerBound}.
+ * The order is a small CSP of its own, one variable per position in the tour, solved by {@link CSP#minimize}.
+ */
+class MinimumEnergyPlanner {
+    private static final int[][] NEIGHBOR_OFFSETS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    private final GridFingerprint grid;
+    private final DistanceFieldCache cache = DistanceFieldCache.shared();
+    private final int[] start;
+    // distinct targets other than the start cell, the start is stops[stops.length - 1] in the distance table
+    private final int[][] stops;
+    private final int[][] between;
+    private final TargetLowerBound lowerBound;
+    private final List<Variable> visits = new ArrayList<>();
+
+    MinimumEnergyPlanner(GridFingerprint grid, int[] start, int[][] targets) {
+        this.grid = grid;
+        this.start = start;
+        List<int[]> distinct = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        seen.add(start[0] * grid.getCols() + start[1]);
+        for (int[] target : targets) {
+            if (seen.add(target[0] * grid.getCols() + target[1])) {
+                distinct.add(target);
+            }
+        }
+        distinct.add(start);
+        this.stops = distinct.toArray(new int[0][]);
+        int count = stops.length;
+        this.between = new int[count][count];
+        for (int j = 0; j < count; j++) {
+            GridDistanceField field = cache.get(grid, stops[j][0], stops[j][1]);
+            for (int i = 0; i < count; i++) {
+                between[i][j] = field.distance(stops[i][0], stops[i][1]);
+            }
+        }
+        int[][] unvisited = new int[count - 1][];
+        System.arraycopy(stops, 0, unvisited, 0, count - 1);
+        this.lowerBound = new TargetLowerBound(grid, unvisited, cache);
+        List<Object> targetIndices = new ArrayList<>();
+        for (int i = 0; i < count - 1; i++) {
+            targetIndices.add(i);
+        }
+        for (int i = 0; i < count - 1; i++) {
+            Variable visit = new Variable("Visit_" + i);
+            visit.setDomain(targetIndices);
+            visits.add(visit);
+        }
+    }
+
+    // The shortest walk whose energy stays under the incumbent's bound, start cell first, or null if there is none.
+    // The incumbent is given the energy of each better walk as it is found, with its cells as the solution.
+    List<int[]> plan(Incumbent incumbent, GridVariableRegistry registry, CancellationToken cancellationToken) {
+        CSP order = new CSP(visits, List.of(new AllDifferentVisits()));
+        order.setCancellationToken(cancellationToken);
+        Incumbent tours = new Incumbent(incumbent.getCost(), best -> {
+            List<int[]> walk = walk(best.getSolution());
+            incumbent.raiseLowerBound(best.getLowerBound());
+            incumbent.improve(cellsOf(walk, registry), best.getCost());
+        });
+        Map<Variable, Object> tour = order.minimize(new LinkedHashMap<>(), assignment -> assignment.size() == visits.size(),
+                null, this::energy, this::energyBound, tours);
+        incumbent.raiseLowerBound(tours.getLowerBound());
+        if (tours.isOptimal()) {
+            incumbent.proveOptimal();
+        }
+        return Objects.isNull(tour) ? null : walk(tour);
+    }
+
+    // Energy of the walk along the assigned prefix of the tour, counting every cell entered and the start cell,
+    // the same count the EnergyConstraint puts on the cells of a path
+    private int energy(Map<Variable, Object> tour) {
+        long energy = 1;
+        int at = stops.length - 1;
+        for (Variable visit : visits) {
+            Integer next = (Integer) tour.get(visit);
+            if (next == null) {
+                break;
+            }
+            energy += between[at][next];
+            at = next;
+        }
+        return energy >= TargetLowerBound.UNBOUNDED ? TargetLowerBound.UNBOUNDED : (int) energy;
+    }
+
+    private int energyBound(Map<Variable, Object> tour) {
+        int at = stops.length - 1;
+        long reached = 0L;
+        for (Variable visit : visits) {
+            Integer next = (Integer) tour.get(visit);
+            if (next == null) {
+                break;
+            }
+            at = next;
+            if (next < Long.SIZE) {
+                reached |= 1L << next;
+            }
+        }
+        long bound = (long) energy(tour) + lowerBound.lowerBound(stops[at][0], stops[at][1], reached);
+        return bound >= TargetLowerBound.UNBOUNDED ? TargetLowerBound.UNBOUNDED : (int) bound;
+    }
+
+    // Expands a tour into its cells, following the distance field of each target down to it
+    private List<int[]> walk(Map<Variable, Object> tour) {
+        List<int[]> walk = new ArrayList<>();
+        int row = start[0], col = start[1];
+        walk.add(new int[]{row, col});
+        for (Variable visit : visits) {
+            int[] target = stops[(Integer) tour.get(visit)];
+            GridDistanceField field = cache.get(grid, target[0], target[1]);
+            while (row != target[0] || col != target[1]) {
+                int distance = field.distance(row, col);
+                for (int[] offset : NEIGHBOR_OFFSETS) {
+                    int r = row + offset[0], c = col + offset[1];
+                    if (r >= 0 && r < grid.getRows() && c >= 0 && c < grid.getCols() && field.distance(r, c) == distance - 1) {
+                        row = r;
+                        col = c;
+                        break;
+                    }
+                }
+                walk.add(new int[]{row, col});
+            }
+        }
+        return walk;
+    }
+
+    // The cells of a walk as a path assignment, in the order they are first entered
+    static Map<Variable, Object> cellsOf(List<int[]> walk, GridVariableRegistry registry) {
+        Map<Variable, Object> cells = new LinkedHashMap<>();
+        for (int[] cell : walk) {
+            Variable variable = registry.variableAt(cell[0], cell[1]);
+            cells.putIfAbsent(variable, cell);
+        }
+        return cells;
+    }
+
+    private class AllDifferentVisits implements Constraint {
+        @Override
+        public boolean isSatisfied(Map<Variable, Object> assignment) {
+            Set<Object> visited = new HashSet<>();
+            for (Variable visit : visits) {
+                Object target = assignment.get(visit);
+                if (target != null && !visited.add(target)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public List<Variable> getVariables() {
+            return visits;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package csp.robot.models;
+
+/**
+ * Which cells of a grid are restricted. Implementations hold the map as a {@code boolean[][]}
+ * ({@link ArrayOccupancyGrid}) or as packed bits, possibly mapped from a file ({@link BitPackedOccupancyGrid}).
+ */
+public interface OccupancyGrid {
+    int getRows();
+
+    int getCols();
+
+    boolean isRestricted(int row, int col);
+
+    void setRestricted(int row, int col, boolean restricted);
+
+    default boolean isFree(int row, int col) {
+        return row >= 0 && row < getRows() && col >= 0 && col < getCols() && !isRestricted(row, col);
+    }
+
+    // Number of free cells of a row, implementations can count them faster than cell by cell
+    default int freeCellsInRow(int row) {
+        int free = 0;
+        for (int col = 0; col < getCols(); col++) {
+            if (!isRestricted(row, col)) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    // Copy of the map as one boolean per cell
+    default boolean[][] toBooleanArray() {
+        boolean[][] cells = new boolean[getRows()][getCols()];
+        for (int row = 0; row < getRows(); row++) {
+            for (int col = 0; col < getCols(); col++) {
+                cells[row][col] = isRestricted(row, col);
+            }
+        }
+        return cells;
+    }
+}
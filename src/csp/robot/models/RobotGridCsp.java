@@ -2,33 +2,50 @@ package csp.robot.models;
 
 import csp.model.*;
 import csp.robot.algorithms.AlgorithmArcConsistency4;
-import csp.robot.constraints.AdjacencyConstraint;
 import csp.robot.constraints.EnergyConstraint;
+import csp.robot.constraints.EnergyPropagator;
+import csp.robot.constraints.GridAdjacencyConstraint;
 import csp.robot.constraints.RestrictedCellsConstraint;
+import csp.robot.constraints.RestrictedCellsPropagator;
+import csp.robot.utils.GridFingerprint;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class RobotGridCsp implements CspProblem{
     private final int rows, cols;
     private final int energyLimit;
-    private final boolean[][] restrictedCells;
-    private final int[][] targets;
+    private final OccupancyGrid grid;
+    private int[][] targets;
     private final List<int[]> path = new ArrayList<>();
     private CSP csp;
-    private final Map<Variable, Set<Object>> domains;
-
-    private final Map<Variable, Set<Object>> domainsForTrackAndAdjust;
-    List<Variable> variables = new ArrayList<>();
+    // Cell variables are looked up by coordinates and created on first use
+    private GridVariableRegistry registry;
+    // Legal moves per cell, derived from the restricted cells when asked for
+    private Map<Variable, Set<Object>> domainsForTrackAndAdjust;
+    private GridAdjacencyConstraint adjacencyConstraint;
+    private SearchStatistics statistics;
+    // Snapshot of the map for the distance field cache, taken when first asked for
+    private volatile GridFingerprint fingerprint;
+    private TranspositionTable transpositionTable;
+    // free-cell bitset the moves are read from, built when first asked for and dropped when the map changes
+    private volatile GridMoveGenerator moveGenerator;
+    List<Variable> variables;
     List<Constraint> constraints = new ArrayList<>();
 
     public RobotGridCsp(int rows, int cols, int energyLimit, boolean[][] restrictedCells, int[][] targets) {
-        this.rows = rows;
-        this.cols = cols;
+        this(new ArrayOccupancyGrid(rows, cols, restrictedCells), energyLimit, targets);
+    }
+
+    // Grid over any map representation, e.g. one mapped from a file by GridFile.load
+    public RobotGridCsp(OccupancyGrid grid, int energyLimit, int[][] targets) {
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
         this.energyLimit = energyLimit;
-        this.restrictedCells = restrictedCells;
+        this.grid = grid;
         this.targets = targets;
-        this.domains = new HashMap<>();
-        domainsForTrackAndAdjust = new HashMap<>();
         initializeDomains();
         initalizeConstraints();
         csp = new CSP(variables, constraints);
@@ -38,68 +55,59 @@ public class RobotGridCsp implements CspProblem{
         //add the energy constraint
         constraints.add(new EnergyConstraint(energyLimit));
         //add the restricted cells constraint
-        constraints.add(new RestrictedCellsConstraint(restrictedCells));
-
-        // Add adjacency constraints for each pair of adjacent cells
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                if (!restrictedCells[row][col]) {
-                    Variable currentVar = getVariableAt(row, col);
-
-                    // Add constraints for each adjacent cell (up, down, left, right)
-                    if (row > 0 && !restrictedCells[row - 1][col]) {
-                        Variable adjacentVar = getVariableAt(row - 1, col);
-                        constraints.add(new AdjacencyConstraint(currentVar, adjacentVar));
-                    }
-                    if (row < rows - 1 && !restrictedCells[row + 1][col]) {
-                        Variable adjacentVar = getVariableAt(row + 1, col);
-                        constraints.add(new AdjacencyConstraint(currentVar, adjacentVar));
-                    }
-                    if (col > 0 && !restrictedCells[row][col - 1]) {
-                        Variable adjacentVar = getVariableAt(row, col - 1);
-                        constraints.add(new AdjacencyConstraint(currentVar, adjacentVar));
-                    }
-                    if (col < cols - 1 && !restrictedCells[row][col + 1]) {
-                        Variable adjacentVar = getVariableAt(row, col + 1);
-                        constraints.add(new AdjacencyConstraint(currentVar, adjacentVar));
-                    }
-                }
-            }
-        }
+        constraints.add(new RestrictedCellsConstraint(grid));
+        //adjacency between neighboring cells, derived from the grid instead of one constraint per pair
+        adjacencyConstraint = new GridAdjacencyConstraint(registry);
+        constraints.add(adjacencyConstraint);
     }
 
     private Variable getVariableAt(int row, int col) {
-        return domains.keySet().stream()
-                .filter(var -> var.getName().equals("Cell_" + row + "_" + col))
-                .findFirst()
-                .orElse(null);
+        return registry.variableAt(row, col);
     }
 
+    // Stopping condition for searches without a GridSearchState, e.g. the subtrees of a parallel search:
+    // a target is reached once its cell variable is assigned, one lookup per target
     private Predicate<Map<Variable, Object>> stoppingCondition() {
-        return assignment -> allTargetsReached(assignment) && assignment.size() <= energyLimit;
+        int[][] goal = targets;
+        return assignment -> {
+            for (int[] target : goal) {
+                Variable cell = registry.variableAt(target[0], target[1]);
+                if (cell == null || !assignment.containsKey(cell)) {
+                    return false;
+                }
+            }
+            return assignment.size() <= energyLimit;
+        };
     }
 
+    // Follows the search with a GridSearchState, so its stopping condition is a counter comparison.
+    // The state is registered for one solve, detach it afterwards.
+    private GridSearchState attachSearchState(CSP search) {
+        GridSearchState state = new GridSearchState(rows, cols, targets);
+        search.addSearchListener(state);
+        return state;
+    }
 
-    // Method to check if all target cells have been reached
-    private boolean allTargetsReached(Map<Variable, Object> assignment) {
-        for (int[] target : targets) {
-            boolean found = false;
-            for (Object position : assignment.values()) {
-                int[] pos = (int[]) position;
-                if (pos[0] == target[0] && pos[1] == target[1]) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                return false; // Target cell not reached
-            }
-        }
-        return true;
+    private Predicate<Map<Variable, Object>> stoppingCondition(GridSearchState state) {
+        return assignment -> state.allTargetsReached() && assignment.size() <= energyLimit;
     }
 
     public Map<Variable, Object> solveWithArc4Algorithm() {
-        AlgorithmArcConsistency4 ac4 = new AlgorithmArcConsistency4(domains, constraints);
+        return solveWithArc4Algorithm(SearchLimits.none()).getSolution();
+    }
+
+    // The limits bound the search after arc consistency, which always runs to the end
+    public SolveResult solveWithArc4Algorithm(SearchLimits limits) {
+        // AC-4 works on explicit value domains and binary arcs, so they are materialized for it here
+        Map<Variable, Set<Object>> domains = new HashMap<>();
+        for (Variable var : variables) {
+            domains.put(var, new HashSet<>(var.getDomain()));
+        }
+        List<Constraint> arcConstraints = new ArrayList<>(constraints);
+        arcConstraints.remove(adjacencyConstraint);
+        arcConstraints.addAll(adjacencyConstraint.toBinaryConstraints());
+        AlgorithmArcConsistency4 ac4 = new AlgorithmArcConsistency4(domains, arcConstraints);
+        ac4.setStatistics(statistics);
         ac4.enforceArcConsistency();
         Map<Variable, Object> assignment = new HashMap<>();
         Variable startVariable = getVariableAt(0, 0);
@@ -108,10 +116,41 @@ public class RobotGridCsp implements CspProblem{
             assignment.put(startVariable, new int[]{0, 0});
         }
 
-        if (csp.backtrackingSearchForArc4(assignment, stoppingCondition(), domains)) {
-            return assignment;
+        GridSearchState state = attachSearchState(csp);
+        try {
+            return csp.backtrackingSearchForArc4(assignment, stoppingCondition(state), domains, limits).withStatistics(statistics);
+        } finally {
+            csp.removeSearchListener(state);
         }
+    }
 
+    // Solve on the integer-indexed form of the problem, decoding the path back to cell variables
+    public Map<Variable, Object> solveCompiled() {
+        if (grid.isRestricted(0, 0)) {
+            return null;  // the start cell is not a variable of the problem
+        }
+        CompiledCsp compiled = csp.compile();
+        int[] targetVars = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            Variable target = getVariableAt(targets[i][0], targets[i][1]);
+            if (target == null) {
+                return null;  // a restricted target can never be reached
+            }
+            targetVars[i] = compiled.idOf(target);
+        }
+        IntAssignment assignment = new IntAssignment(compiled.getVariableCount());
+        assignment.assign(compiled.idOf(getVariableAt(0, 0)), 0);
+        Predicate<IntAssignment> stoppingCondition = current -> {
+            for (int target : targetVars) {
+                if (!current.isAssigned(target)) {
+                    return false;
+                }
+            }
+            return current.size() <= energyLimit;
+        };
+        if (new CompiledSearch(compiled).solve(assignment, stoppingCondition)) {
+            return compiled.decode(assignment);
+        }
         return null;
     }
 
@@ -122,11 +161,36 @@ public class RobotGridCsp implements CspProblem{
         return solveBacktracking(null, null);
     }
 
+    public void setVariableOrderingHeuristic(VariableOrderingHeuristic variableOrderingHeuristic) {
+        csp.setVariableOrderingHeuristic(variableOrderingHeuristic);
+    }
+
+    public void setValueOrderingHeuristic(ValueOrderingHeuristic valueOrderingHeuristic) {
+        csp.setValueOrderingHeuristic(valueOrderingHeuristic);
+    }
+
+    // Prunes the visited-cell sets the search already failed from, null turns it off
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+        csp.setTranspositionTable(transpositionTable, new GridStateHasher(cols, 0x2545F4914F6CDD1DL));
+    }
+
+    // Collects the counters and phase timings of the following solves, null turns collection off
+    public void setStatistics(SearchStatistics statistics) {
+        if (Objects.nonNull(this.statistics)) {
+            csp.removeSearchListener(this.statistics);
+        }
+        this.statistics = statistics;
+        if (Objects.nonNull(statistics)) {
+            csp.addSearchListener(statistics);
+        }
+    }
+
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
     public Map<Variable, Object> solveBacktracking(LookaheadStrategy lookaheadStrategy, TrackAndAdjustStrategy trackAndAdjustStrategy) {
-        Map<Variable, Object> assignment = new LinkedHashMap<>();
-        Variable startVariable = new Variable("Cell_0_0");
-        startVariable.setDomain(List.of(new int[]{0, 0}));
-        assignment.put(startVariable, new int[]{0, 0});
         if (Objects.nonNull(lookaheadStrategy)) {
             csp.setLookaheadStrategy(lookaheadStrategy);
         } else {
@@ -134,10 +198,196 @@ public class RobotGridCsp implements CspProblem{
                 csp.setTrackAndAdjustStrategy(trackAndAdjustStrategy);
             }
         }
-        if (csp.backtrackingSearch(assignment, stoppingCondition(), domainsForTrackAndAdjust)) {
-            return assignment;  // Return the assignment if a solution is found
+        return solveBacktracking(csp);
+    }
+
+    // Searches for a path from the start cell with the given, already configured, search
+    public Map<Variable, Object> solveBacktracking(CSP search) {
+        return solveWithinLimits(search, SearchLimits.none()).getSolution();
+    }
+
+    // Same search within the limits, the result tells a timeout from a grid without a path
+    public SolveResult solveWithinLimits(CSP search, SearchLimits limits) {
+        Map<Variable, Object> assignment = startAssignment();
+        GridSearchState state = attachSearchState(search);
+        try {
+            // the statistics follow this model's own search only, see setStatistics
+            return search.backtrackingSearch(assignment, stoppingCondition(state), domainsForTrackAndAdjust, limits)
+                    .withStatistics(search == csp ? statistics : null);
+        } finally {
+            search.removeSearchListener(state);
+        }
+    }
+
+    // Same search restarted on the schedule, reproducible from the seed
+    public SolveResult solveWithRestarts(CSP search, RestartSchedule schedule, long seed, SearchLimits limits) {
+        Map<Variable, Object> assignment = startAssignment();
+        GridSearchState state = attachSearchState(search);
+        try {
+            return new RestartingSearch(search, schedule, seed)
+                    .search(assignment, stoppingCondition(state), domainsForTrackAndAdjust, limits)
+                    .withStatistics(search == csp ? statistics : null);
+        } finally {
+            search.removeSearchListener(state);
+        }
+    }
+
+    // Same search with the energy and restricted-cell constraints replaced by their propagators,
+    // so a path is abandoned as soon as its energy cannot cover the targets it still misses
+    public SolveResult solveWithPropagation(SearchLimits limits) {
+        return solveWithinLimits(newPropagatingCsp(), limits);
+    }
+
+    public Map<Variable, Object> solveMinimumEnergy() {
+        return solveMinimumEnergy(new Incumbent(), null);
+    }
+
+    // The path covering every target that uses the least energy, or null if none fits in the energy limit.
+    // The incumbent reports the best path and the optimality gap while the search runs, the walk itself,
+    // revisits included, is left in getPath(). A cancelled search returns the best path found so far.
+    public Map<Variable, Object> solveMinimumEnergy(Incumbent incumbent, CancellationToken cancellationToken) {
+        path.clear();
+        if (grid.isRestricted(0, 0)) {
+            return null;
+        }
+        Incumbent withinEnergy = new Incumbent(Math.min(incumbent.getCost(), energyLimit + 1),
+                best -> {
+                    incumbent.raiseLowerBound(best.getLowerBound());
+                    incumbent.improve(best.getSolution(), best.getCost());
+                });
+        MinimumEnergyPlanner planner = new MinimumEnergyPlanner(getFingerprint(), new int[]{0, 0}, targets);
+        List<int[]> walk = planner.plan(withinEnergy, registry, cancellationToken);
+        incumbent.raiseLowerBound(withinEnergy.getLowerBound());
+        if (withinEnergy.isOptimal()) {
+            incumbent.proveOptimal();
+        }
+        if (Objects.isNull(walk)) {
+            return null;
+        }
+        path.addAll(walk);
+        return new LinkedHashMap<>(withinEnergy.getSolution());
+    }
+
+    // Splits the search tree across the common fork/join pool, each subtree gets a search set up by the configuration
+    // Cell domains hold a single position, so the tree never branches above the split depth: every level yields
+    // one subtask and the whole search runs on one worker, with no speedup over solveBacktracking.
+    public Map<Variable, Object> solveParallel(Consumer<CSP> configuration, int splitDepth) {
+        Supplier<CSP> cspFactory = () -> {
+            CSP search = newCsp();
+            configuration.accept(search);
+            return search;
+        };
+        return new ParallelBacktrackingSearch(cspFactory, splitDepth)
+                .search(startAssignment(), stoppingCondition(), domainsForTrackAndAdjust);
+    }
+
+    // Every cell is its own single value, so a set of cells that reaches every target is found at most once.
+    public Stream<Map<Variable, Object>> solutions(CSP search) {
+        return search.solutions(startAssignment(), stoppingCondition(), domainsForTrackAndAdjust);
+    }
+
+    public Stream<Map<Variable, Object>> solutions(Consumer<CSP> configuration, boolean parallel) {
+        Supplier<CSP> cspFactory = () -> {
+            CSP search = newCsp();
+            configuration.accept(search);
+            return search;
+        };
+        return SolutionSpliterator.stream(cspFactory, startAssignment(), stoppingCondition(), domainsForTrackAndAdjust, parallel);
+    }
+
+    // Changes to the map and the targets of a live model. They must not run while one of its searches is running,
+    // repair(previousSolution) then re-plans from what is left of the previous path.
+    public void addObstacle(int row, int col) {
+        setRestricted(row, col, true);
+    }
+
+    public void removeObstacle(int row, int col) {
+        setRestricted(row, col, false);
+    }
+
+    private void setRestricted(int row, int col, boolean restricted) {
+        if (grid.isRestricted(row, col) == restricted) {
+            return;
+        }
+        registry.setRestricted(row, col, restricted);
+        // distance fields are cached by content, so the old map's stay for other grids with that map until evicted
+        fingerprint = null;
+        moveGenerator = null;
+        // states that failed on the old map may succeed on the new one
+        if (Objects.nonNull(transpositionTable)) {
+            transpositionTable.clear();
+        }
+    }
+
+    public void addTarget(int row, int col) {
+        for (int[] target : targets) {
+            if (target[0] == row && target[1] == col) {
+                return;
+            }
+        }
+        int[][] updated = Arrays.copyOf(targets, targets.length + 1);
+        updated[targets.length] = new int[]{row, col};
+        // a new target only removes solutions, the states that failed before still fail
+        targets = updated;
+    }
+
+    public void removeTarget(int row, int col) {
+        List<int[]> remaining = new ArrayList<>();
+        for (int[] target : targets) {
+            if (target[0] != row || target[1] != col) {
+                remaining.add(target);
+            }
+        }
+        targets = remaining.toArray(new int[0][]);
+        // states that failed with the target may succeed without it
+        if (Objects.nonNull(transpositionTable)) {
+            transpositionTable.clear();
+        }
+    }
+
+    // Re-plans after the map or the targets changed, keeping the part of the previous path that is still valid
+    @Override
+    public Map<Variable, Object> repair(Map<Variable, Object> previousSolution) {
+        if (Objects.isNull(previousSolution)) {
+            return solveBacktracking(csp);
+        }
+        Map<Variable, Object> assignment = startAssignment();
+        GridSearchState state = attachSearchState(csp);
+        try {
+            if (csp.repairSearch(assignment, previousSolution, stoppingCondition(state), domainsForTrackAndAdjust)) {
+                return assignment;
+            }
+        } finally {
+            csp.removeSearchListener(state);
         }
-        return null;  // Return null if no solution is found
+        return null;
+    }
+
+    private Map<Variable, Object> startAssignment() {
+        Map<Variable, Object> assignment = new LinkedHashMap<>();
+        Variable startVariable = new Variable("Cell_0_0");
+        startVariable.setDomain(List.of(new int[]{0, 0}));
+        assignment.put(startVariable, new int[]{0, 0});
+        return assignment;
+    }
+
+    // A search over this grid with its own strategies and state, sharing only the variables and constraints
+    public CSP newCsp() {
+        return new CSP(variables, constraints);
+    }
+
+    // A search over this grid that propagates the energy and restricted-cell constraints instead of checking them
+    public CSP newPropagatingCsp() {
+        CSP search = new CSP(variables, List.of(adjacencyConstraint));
+        List<Variable> targetVariables = new ArrayList<>();
+        for (int[] target : targets) {
+            targetVariables.add(getVariableAt(target[0], target[1]));
+        }
+        PropagationEngine engine = new PropagationEngine();
+        engine.addPropagator(new RestrictedCellsPropagator(grid));
+        engine.addPropagator(new EnergyPropagator(energyLimit, targetVariables));
+        search.setPropagationEngine(engine);
+        return search;
     }
 
     // Method to display solution (path)
@@ -158,7 +408,7 @@ public class RobotGridCsp implements CspProblem{
         // Count variables (cells that are not restricted)
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
-                if (!restrictedCells[row][col]) {
+                if (!grid.isRestricted(row, col)) {
                     numVariables++;
                 }
             }
@@ -173,12 +423,12 @@ public class RobotGridCsp implements CspProblem{
         // Constraint 4: Adjacency constraints (each move has a potential constraint edge)
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
-                if (!restrictedCells[row][col]) {
+                if (!grid.isRestricted(row, col)) {
                     // Each non-restricted cell has up to four possible neighbors
-                    if (row > 0 && !restrictedCells[row - 1][col]) numConstraints++; // Up
-                    if (row < rows - 1 && !restrictedCells[row + 1][col]) numConstraints++; // Down
-                    if (col > 0 && !restrictedCells[row][col - 1]) numConstraints++; // Left
-                    if (col < cols - 1 && !restrictedCells[row][col + 1]) numConstraints++; // Right
+                    if (row > 0 && !grid.isRestricted(row - 1, col)) numConstraints++; // Up
+                    if (row < rows - 1 && !grid.isRestricted(row + 1, col)) numConstraints++; // Down
+                    if (col > 0 && !grid.isRestricted(row, col - 1)) numConstraints++; // Left
+                    if (col < cols - 1 && !grid.isRestricted(row, col + 1)) numConstraints++; // Right
                 }
             }
         }
@@ -199,7 +449,7 @@ public class RobotGridCsp implements CspProblem{
                 int col = position[1];
 
                 // Check if this cell is non-restricted
-                if (!restrictedCells[row][col]) {
+                if (!grid.isRestricted(row, col)) {
                     consistentDomain.add(value);  // Keep value if it's consistent
                 }
             }
@@ -221,8 +471,13 @@ public class RobotGridCsp implements CspProblem{
         return energyLimit;
     }
 
+    // The map as a boolean[][]: the array itself for array-backed grids, a full copy for bit-packed ones
     public boolean[][] getRestrictedCells() {
-        return restrictedCells;
+        return grid.toBooleanArray();
+    }
+
+    public OccupancyGrid getOccupancyGrid() {
+        return grid;
     }
 
     public int[][] getTargets() {
@@ -233,33 +488,33 @@ public class RobotGridCsp implements CspProblem{
         return path;
     }
 
+    public GridFingerprint getFingerprint() {
+        GridFingerprint current = fingerprint;
+        if (current == null) {
+            current = GridFingerprint.of(grid);
+            fingerprint = current;
+        }
+        return current;
+    }
+
+    public GridMoveGenerator getMoveGenerator() {
+        GridMoveGenerator current = moveGenerator;
+        if (current == null) {
+            current = new GridMoveGenerator(grid);
+            moveGenerator = current;
+        }
+        return current;
+    }
+
+    public GridVariableRegistry getRegistry() {
+        return registry;
+    }
+
     @Override
     public void initializeDomains(){
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                if (!restrictedCells[row][col]) {
-                    String currentCell = "Cell_" + row + "_" + col;
-                    Variable cell = new Variable(currentCell);
-                    cell.setDomain(List.of(new int[]{row, col}));  // Each cell has a single domain value (its position)
-                    variables.add(cell);
-                    domains.put(cell, Set.of(new int[]{row, col}));
-                    Set<Object> possibleMoves = new HashSet<>();
-                    if (row > 0 && !restrictedCells[row - 1][col]) {
-                        possibleMoves.add("up");
-                    }
-                    if (row < rows - 1 && !restrictedCells[row + 1][col]) {
-                        possibleMoves.add("down");
-                    }
-                    if (col > 0 && !restrictedCells[row][col - 1]) {
-                        possibleMoves.add("left");
-                    }
-                    if (col < cols - 1 && !restrictedCells[row][col + 1]) {
-                        possibleMoves.add("right");
-                    }
-                    domainsForTrackAndAdjust.put(cell, possibleMoves);
-                }
-            }
-        }
+        registry = new GridVariableRegistry(grid);
+        variables = registry.getVariables();
+        domainsForTrackAndAdjust = new GridMoveDomains(registry);
     }
 
     @Override
@@ -269,14 +524,18 @@ public class RobotGridCsp implements CspProblem{
 
     @Override
     public Map<Variable, Object> baselineBacktracking() {
-        Map<Variable, Object> assignment = new LinkedHashMap<>();
-        Variable startVariable = new Variable("Cell_0_0");
-        startVariable.setDomain(List.of(new int[]{0, 0}));
-        assignment.put(startVariable, new int[]{0, 0});
-        if (csp.backtrackingSearch(assignment, stoppingCondition(), null)) {
-            return assignment;  // Return the assignment if a solution is found
+        return baselineBacktracking(SearchLimits.none()).getSolution();
+    }
+
+    @Override
+    public SolveResult baselineBacktracking(SearchLimits limits) {
+        Map<Variable, Object> assignment = startAssignment();
+        GridSearchState state = attachSearchState(csp);
+        try {
+            return csp.backtrackingSearch(assignment, stoppingCondition(state), null, limits).withStatistics(statistics);
+        } finally {
+            csp.removeSearchListener(state);
         }
-        return null;
     }
 
     @Override
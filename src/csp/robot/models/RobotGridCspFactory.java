@@ -1,5 +1,8 @@
 package csp.robot.models;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class RobotGridCspFactory {
 
 
@@ -50,4 +53,33 @@ public class RobotGridCspFactory {
         restrictedCells[4][3] = true;
         return new RobotGridCsp(rows, cols, energyLimit, restrictedCells, targets);
     }
+
+    // Square grid of any size with a sparse diagonal obstacle pattern and three targets,
+    // with just enough energy for the row-major search to reach the last target
+    public static RobotGridCsp getScaledRobotGrid(int size) {
+        int rows = size;
+        int cols = size;
+        int[][] targets = {{0, cols - 1}, {rows / 4, cols / 2}, {rows / 2, cols / 3}};
+        boolean[][] restrictedCells = new boolean[rows][cols];
+        for (int row = 1; row < rows; row++) {
+            for (int col = row % 7; col < cols; col += 7) {
+                restrictedCells[row][col] = true;
+            }
+        }
+        for (int[] target : targets) {
+            restrictedCells[target[0]][target[1]] = false;
+        }
+        int energyLimit = 0;
+        for (int cell = 0; cell <= (rows / 2) * cols + cols / 3; cell++) {
+            if (!restrictedCells[cell / cols][cell % cols]) {
+                energyLimit++;
+            }
+        }
+        return new RobotGridCsp(rows, cols, energyLimit, restrictedCells, targets);
+    }
+
+    // Grid stored in the binary format of GridFile, mapped rather than read into the heap
+    public static RobotGridCsp loadRobotGrid(Path path) throws IOException {
+        return GridFile.load(path);
+    }
 }
@@ -3,78 +3,104 @@ package csp.robot.models.strategies;
 import csp.model.CSP;
 import csp.model.TrackAndAdjustStrategy;
 import csp.model.Variable;
+import csp.robot.models.GridMoveGenerator;
+import csp.robot.models.GridVariableRegistry;
+import csp.robot.models.RobotGridCsp;
 
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Rejects cells already on the path, past the energy limit or without a free move left. Moves and visited cells
+ * are dense ids of the grid's {@link GridMoveGenerator}, probed by direction, so a check allocates nothing.
+ */
 public class RobotNavigationTrackAndAdjust implements TrackAndAdjustStrategy {
-    private final Set<Variable> visitedPaths = new HashSet<>(); // Track visited cells to avoid loops
     private final int energyLimit; // Energy limit, specific to the problem
-    private final boolean[][] restrictedCells;
+    private final GridMoveGenerator moves;
+    // Track visited cells to avoid loops, one bit per cell id of the move generator
+    private final long[] visitedCells;
+    private int visitedCount;
+    // probes the moves nearest the unreached targets first when set, the generator's order otherwise
+    private final TargetDistanceValueOrdering ordering;
+    private final TargetDistanceValueOrdering.CellTest visitedTest = this::isVisitedAt;
+    private final int[] directions = {0, 1, 2, 3};
 
     public RobotNavigationTrackAndAdjust(int energyLimit, boolean[][] restrictedCells) {
+        this(energyLimit, new GridMoveGenerator(restrictedCells, restrictedCells.length,
+                restrictedCells.length == 0 ? 0 : restrictedCells[0].length), null);
+    }
+
+    public RobotNavigationTrackAndAdjust(RobotGridCsp robotGridCsp) {
+        this(robotGridCsp.getEnergyLimit(), robotGridCsp.getMoveGenerator(), new TargetDistanceValueOrdering(robotGridCsp));
+    }
+
+    private RobotNavigationTrackAndAdjust(int energyLimit, GridMoveGenerator moves, TargetDistanceValueOrdering ordering) {
         this.energyLimit = energyLimit;
-        this.restrictedCells = restrictedCells;
+        this.moves = moves;
+        this.ordering = ordering;
+        this.visitedCells = new long[(moves.getCellCount() + Long.SIZE - 1) / Long.SIZE];
     }
 
 
     @Override
     public boolean trackAndAdjustPaths(CSP csp, Variable currentVar, Object value, Map<Variable, Object> assignment, Map<Variable, Set<Object>> domains) {
-        if (visitedPaths.contains(currentVar)) {
+        int[] position = GridVariableRegistry.positionOf(currentVar);
+        int cell = moves.idOf(position[0], position[1]);
+        if (cell == GridMoveGenerator.NO_CELL) {
+            return false; //restricted cells have no moves
+        }
+        if (isVisited(cell)) {
             return false; //skip path as it was visited and unsuccesful before
         }
         assignment.put(currentVar, value);
-        visitedPaths.add(currentVar);
+        setVisited(cell, true);
         if (assignment.size() > energyLimit) {
             //path that exceeds energy limit
-            visitedPaths.remove(currentVar);
+            setVisited(cell, false);
             assignment.remove(currentVar);
             return false;
         }
-        boolean viablePath = hasFeasibleMove(currentVar, domains);
+        boolean viablePath = hasFeasibleMove(position[0], position[1]);
         if (!viablePath) {
-            visitedPaths.remove(currentVar);
+            setVisited(cell, false);
             assignment.remove(currentVar);
         }
         return viablePath;
     }
 
-    private boolean hasFeasibleMove(Variable currentVar, Map<Variable, Set<Object>> domains) {
-        for (Object direction : domains.get(currentVar)) {
-            int[] newPosition = getNextPosition(currentVar, direction);
-            if (!visitedPaths.contains(new Variable("Cell_" + newPosition[0] + "_" + newPosition[1]))) {
+    private boolean hasFeasibleMove(int row, int col) {
+        if (ordering != null) {
+            ordering.orderDirections(row, col, visitedTest, directions);
+        }
+        for (int direction : directions) {
+            int neighbor = moves.neighbor(row, col, direction);
+            if (neighbor != GridMoveGenerator.NO_CELL && !isVisited(neighbor)) {
                 return true;
             }
         }
         return false; // No feasible moves left, prune this path
     }
 
-    private int[] getNextPosition(Variable currentVar, Object direction) {
-        int[] currentPosition = (int[]) currentVar.getDomain().get(0);
-        int row = currentPosition[0];
-        int col = currentPosition[1];
-        switch (direction.toString().toLowerCase()) {
-            case "up":
-                return new int[]{row - 1, col}; //up
-            case "down":
-                return new int[]{row + 1, col}; //down
-            case "left":
-                return new int[]{row, col - 1}; //left
-            case "right":
-                return new int[]{row, col + 1}; //right
-            default:
-                throw new IllegalArgumentException("Invalid direction: " + direction);
-        }
+    private boolean isVisitedAt(int row, int col) {
+        int cell = moves.idOf(row, col);
+        return cell != GridMoveGenerator.NO_CELL && isVisited(cell);
     }
 
-    private boolean isRestricted(int row, int col) {
-        if (row < 0 || row >= restrictedCells.length || col < 0 || col >= restrictedCells[0].length) {
-            return true;
-        }
-        return restrictedCells[row][col];
+    private boolean isVisited(int cell) {
+        return (visitedCells[cell >>> 6] & (1L << cell)) != 0;
     }
 
+    private void setVisited(int cell, boolean visited) {
+        if (visited) {
+            visitedCells[cell >>> 6] |= 1L << cell;
+            visitedCount++;
+        } else {
+            visitedCells[cell >>> 6] &= ~(1L << cell);
+            visitedCount--;
+        }
+    }
 
+    public int getVisitedCount() {
+        return visitedCount;
+    }
 }
@@ -0,0 +1,44 @@
+package csp.robot.models.strategies;
+
+import csp.model.CSP;
+import csp.model.LookaheadStrategy;
+import csp.model.Variable;
+import csp.robot.models.GridVariableRegistry;
+import csp.robot.models.RobotGridCsp;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lookahead that rejects a cell when the cells assigned with it plus the targets still unreached exceed the
+ * energy limit: every unreached target is one more cell to assign. The search assigns cells, not moves, so the
+ * assigned cell is no robot position to measure distances from; this count is the bound that stays admissible,
+ * the one {@link csp.robot.constraints.EnergyPropagator} propagates. O(targets) per check.
+ */
+public class TargetCountLookaheadStrategy implements LookaheadStrategy {
+    private final int energyLimit;
+    // one per distinct target cell, a target is reached once its cell is assigned
+    private final Variable[] targetVariables;
+
+    public TargetCountLookaheadStrategy(RobotGridCsp robotGridCsp) {
+        this.energyLimit = robotGridCsp.getEnergyLimit();
+        Set<Variable> targets = new LinkedHashSet<>();
+        for (int[] target : robotGridCsp.getTargets()) {
+            targets.add(new Variable(GridVariableRegistry.cellName(target[0], target[1])));
+        }
+        this.targetVariables = targets.toArray(new Variable[0]);
+    }
+
+    @Override
+    public boolean lookaheadCheck(CSP csp, Variable variable, Object value, Map<Variable, Object> assignment) {
+        int used = assignment.containsKey(variable) ? assignment.size() : assignment.size() + 1;
+        int unreached = 0;
+        for (Variable target : targetVariables) {
+            if (!target.equals(variable) && !assignment.containsKey(target)) {
+                unreached++;
+            }
+        }
+        return used + unreached <= energyLimit;
+    }
+}
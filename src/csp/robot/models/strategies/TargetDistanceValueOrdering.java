@@ -0,0 +1,203 @@
+package csp.robot.models.strategies;
+
+import csp.model.CSP;
+import csp.model.ValueOrderingHeuristic;
+import csp.model.Variable;
+import csp.robot.models.GridMoveGenerator;
+import csp.robot.models.GridVariableRegistry;
+import csp.robot.models.RobotGridCsp;
+import csp.robot.utils.DistanceFieldCache;
+import csp.robot.utils.GridDistanceField;
+import csp.robot.utils.GridFingerprint;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Tries first the values that lead closest to the nearest target not reached yet.
+ * Values can be positions ({@code int[]}) or moves ("up", "down", "left", "right") from the variable's cell.
+ * Distances go around restricted cells, they come from one breadth-first search per target shared through
+ * {@link DistanceFieldCache}, run when a variable first has two values to order. A variable with fewer values
+ * gets them back as they are, so searches over single-valued domains (the robot's cell variables) pay nothing.
+ * The targets and the map are read from the grid whenever they changed, so edits to it between searches are
+ * followed. {@link #orderDirections} gives the same order to strategies that walk the grid's moves themselves.
+ */
+public class TargetDistanceValueOrdering implements ValueOrderingHeuristic {
+    private final RobotGridCsp robotGridCsp;
+    private volatile Targets current;
+
+    // Whether the cell counts as reached, for the strategies that track their own path
+    public interface CellTest {
+        boolean test(int row, int col);
+    }
+
+    // Targets and distance fields of one version of the grid; rebuilt when the grid replaces either
+    private static final class Targets {
+        private final int[][] source;
+        private final GridFingerprint fingerprint;
+        private final int rows, cols;
+        // distinct target cells, as row * cols + col in ascending order
+        private final long[] cells;
+        private final GridDistanceField[] distances;
+
+        Targets(int[][] source, GridFingerprint fingerprint) {
+            this.source = source;
+            this.fingerprint = fingerprint;
+            this.rows = fingerprint.getRows();
+            this.cols = fingerprint.getCols();
+            long[] all = new long[source.length];
+            for (int i = 0; i < source.length; i++) {
+                all[i] = (long) source[i][0] * cols + source[i][1];
+            }
+            this.cells = Arrays.stream(all).sorted().distinct().toArray();
+            this.distances = new GridDistanceField[cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                distances[i] = DistanceFieldCache.shared().get(fingerprint, (int) (cells[i] / cols), (int) (cells[i] % cols));
+            }
+        }
+
+        boolean inside(int row, int col) {
+            return row >= 0 && row < rows && col >= 0 && col < cols;
+        }
+
+        int rowOf(int target) {
+            return (int) (cells[target] / cols);
+        }
+
+        int colOf(int target) {
+            return (int) (cells[target] % cols);
+        }
+    }
+
+    public TargetDistanceValueOrdering(RobotGridCsp robotGridCsp) {
+        this.robotGridCsp = robotGridCsp;
+    }
+
+    @Override
+    public Iterable<Object> orderValues(CSP csp, Variable variable, Collection<Object> values, Map<Variable, Object> assignment) {
+        if (values.size() < 2) {
+            return values;
+        }
+        Targets targets = targets();
+        boolean[] reached = new boolean[targets.cells.length];
+        if (reachTargets(targets, assignment, reached) == targets.cells.length) {
+            return values;
+        }
+        Object[] ordered = values.toArray();
+        // distance in the high half, position in the low one: sorting the keys is a stable sort by distance
+        long[] keys = new long[ordered.length];
+        for (int i = 0; i < ordered.length; i++) {
+            int[] position = positionOf(variable, ordered[i]);
+            int distance = position == null ? GridDistanceField.UNREACHABLE
+                    : distanceToNearestTarget(targets, position[0], position[1], reached);
+            keys[i] = (long) distance << 32 | i;
+        }
+        Arrays.sort(keys);
+        Object[] sorted = new Object[ordered.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = ordered[(int) keys[i]];
+        }
+        return Arrays.asList(sorted);
+    }
+
+    // Fills directions with the GridMoveGenerator directions, nearest first by the distance from the cell one move
+    // away to the nearest target the test does not report reached; ties keep the generator's order. No allocation.
+    public void orderDirections(int row, int col, CellTest reachedTest, int[] directions) {
+        Targets targets = targets();
+        // distance in the high bits, direction in the low two, so sorting the keys sorts the directions
+        long k0 = directionKey(targets, row, col, 0, reachedTest);
+        long k1 = directionKey(targets, row, col, 1, reachedTest);
+        long k2 = directionKey(targets, row, col, 2, reachedTest);
+        long k3 = directionKey(targets, row, col, 3, reachedTest);
+        // sorting network for four keys
+        long low01 = Math.min(k0, k1), high01 = Math.max(k0, k1);
+        long low23 = Math.min(k2, k3), high23 = Math.max(k2, k3);
+        long middleLow = Math.max(low01, low23), middleHigh = Math.min(high01, high23);
+        directions[0] = (int) (Math.min(low01, low23) & 3);
+        directions[1] = (int) (Math.min(middleLow, middleHigh) & 3);
+        directions[2] = (int) (Math.max(middleLow, middleHigh) & 3);
+        directions[3] = (int) (Math.max(high01, high23) & 3);
+    }
+
+    private static long directionKey(Targets targets, int row, int col, int direction, CellTest reachedTest) {
+        int nextRow = row + GridMoveGenerator.rowStep(direction);
+        int nextCol = col + GridMoveGenerator.colStep(direction);
+        int nearest = GridDistanceField.UNREACHABLE;
+        if (targets.inside(nextRow, nextCol)) {
+            for (int i = 0; i < targets.cells.length; i++) {
+                if (!reachedTest.test(targets.rowOf(i), targets.colOf(i))) {
+                    nearest = Math.min(nearest, targets.distances[i].distance(nextRow, nextCol));
+                }
+            }
+        }
+        return (long) nearest << 2 | direction;
+    }
+
+    // The targets of the grid as it is now. The grid replaces its targets array and its fingerprint when they
+    // change, so comparing references is enough to notice an edit.
+    private Targets targets() {
+        Targets targets = current;
+        int[][] source = robotGridCsp.getTargets();
+        GridFingerprint fingerprint = robotGridCsp.getFingerprint();
+        if (targets == null || targets.source != source || targets.fingerprint != fingerprint) {
+            targets = new Targets(source, fingerprint);
+            current = targets;
+        }
+        return targets;
+    }
+
+    // Marks the target cells the assignment holds, one binary search per assigned position; returns how many
+    private static int reachTargets(Targets targets, Map<Variable, Object> assignment, boolean[] reached) {
+        int count = 0;
+        for (Object value : assignment.values()) {
+            if (!(value instanceof int[])) {
+                continue;
+            }
+            int[] pos = (int[]) value;
+            if (!targets.inside(pos[0], pos[1])) {
+                continue;
+            }
+            int target = Arrays.binarySearch(targets.cells, (long) pos[0] * targets.cols + pos[1]);
+            if (target >= 0 && !reached[target]) {
+                reached[target] = true;
+                if (++count == targets.cells.length) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int distanceToNearestTarget(Targets targets, int row, int col, boolean[] reached) {
+        if (!targets.inside(row, col)) {
+            return GridDistanceField.UNREACHABLE;
+        }
+        int nearest = GridDistanceField.UNREACHABLE;
+        for (int i = 0; i < targets.distances.length; i++) {
+            if (!reached[i]) {
+                nearest = Math.min(nearest, targets.distances[i].distance(row, col));
+            }
+        }
+        return nearest;
+    }
+
+    private int[] positionOf(Variable variable, Object value) {
+        if (value instanceof int[]) {
+            return (int[]) value;
+        }
+        int[] cell = GridVariableRegistry.positionOf(variable);
+        switch (value.toString().toLowerCase()) {
+            case "up":
+                return new int[]{cell[0] - 1, cell[1]};
+            case "down":
+                return new int[]{cell[0] + 1, cell[1]};
+            case "left":
+                return new int[]{cell[0], cell[1] - 1};
+            case "right":
+                return new int[]{cell[0], cell[1] + 1};
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package csp.robot.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Distance fields keyed by grid fingerprint and source cell, so solves on the same map reuse the breadth-first
+ * searches of earlier ones whatever their start and targets. The least recently used fields are evicted once their
+ * distances take more than the memory budget. Fingerprints are interned: the fields of one map share the first
+ * fingerprint seen for it, whose bits count against the budget once, until the map's last field is evicted.
+ * Thread-safe; a field missing from the cache is computed outside the
+ * lock, so two threads asking for it at the same time may both compute it and one result is kept.
+ */
+public class DistanceFieldCache {
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 64L * 1024 * 1024;
+    // approximate bookkeeping cost of one entry on top of its distances
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final DistanceFieldCache SHARED = new DistanceFieldCache(DEFAULT_MEMORY_BUDGET_BYTES);
+
+    private final long memoryBudgetBytes;
+    // access ordered, the eldest entry is the least recently used
+    private final LinkedHashMap<Key, GridDistanceField> fields = new LinkedHashMap<>(16, 0.75f, true);
+    // the interned fingerprint of every map with fields in the cache
+    private final Map<GridFingerprint, InternedGrid> grids = new HashMap<>();
+    private long sizeInBytes;
+    private long hits, misses, evictions;
+
+    public DistanceFieldCache(long memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    // Cache shared by the strategies and heuristics of every grid in the JVM
+    public static DistanceFieldCache shared() {
+        return SHARED;
+    }
+
+    public GridDistanceField get(GridFingerprint grid, int sourceRow, int sourceCol) {
+        Key key = new Key(grid, sourceRow * grid.getCols() + sourceCol);
+        synchronized (this) {
+            GridDistanceField field = fields.get(key);
+            if (field != null) {
+                hits++;
+                return field;
+            }
+            misses++;
+        }
+        GridDistanceField computed = new GridDistanceField(grid, sourceRow, sourceCol);
+        synchronized (this) {
+            GridDistanceField field = fields.get(key);
+            if (field != null) {
+                return field;
+            }
+            InternedGrid interned = grids.get(grid);
+            if (interned == null) {
+                interned = new InternedGrid(grid);
+                grids.put(grid, interned);
+                sizeInBytes += grid.sizeInBytes();
+            }
+            interned.fields++;
+            fields.put(new Key(interned.fingerprint, key.sourceCell), computed);
+            sizeInBytes += entrySize(computed);
+            evictOverBudget();
+        }
+        return computed;
+    }
+
+    // The least recently used fields go first, the one just added stays even when it is larger than the budget
+    private void evictOverBudget() {
+        Iterator<Map.Entry<Key, GridDistanceField>> eldest = fields.entrySet().iterator();
+        while (sizeInBytes > memoryBudgetBytes && fields.size() > 1) {
+            Map.Entry<Key, GridDistanceField> entry = eldest.next();
+            release(entry);
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // Drops every field of the grid, e.g. once its map has changed
+    public synchronized void invalidate(GridFingerprint grid) {
+        Iterator<Map.Entry<Key, GridDistanceField>> entries = fields.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, GridDistanceField> entry = entries.next();
+            if (entry.getKey().grid.equals(grid)) {
+                release(entry);
+                entries.remove();
+            }
+        }
+    }
+
+    // Takes the entry's field off the size, and its fingerprint too when it was the last field of its map
+    private void release(Map.Entry<Key, GridDistanceField> entry) {
+        sizeInBytes -= entrySize(entry.getValue());
+        InternedGrid interned = grids.get(entry.getKey().grid);
+        if (--interned.fields == 0) {
+            grids.remove(interned.fingerprint);
+            sizeInBytes -= interned.fingerprint.sizeInBytes();
+        }
+    }
+
+    public synchronized void clear() {
+        fields.clear();
+        grids.clear();
+        sizeInBytes = 0;
+    }
+
+    private static long entrySize(GridDistanceField field) {
+        return field.sizeInBytes() + ENTRY_OVERHEAD_BYTES;
+    }
+
+    public synchronized int size() {
+        return fields.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DistanceFieldCache{fields=" + fields.size() + ", bytes=" + sizeInBytes + "/" + memoryBudgetBytes
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+    }
+
+    private static final class InternedGrid {
+        private final GridFingerprint fingerprint;
+        private int fields;
+
+        InternedGrid(GridFingerprint fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class Key {
+        private final GridFingerprint grid;
+        private final int sourceCell;
+
+        Key(GridFingerprint grid, int sourceCell) {
+            this.grid = grid;
+            this.sourceCell = sourceCell;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return sourceCell == other.sourceCell && grid.equals(other.grid);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * grid.hashCode() + sourceCell;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package csp.robot.utils;
+
+import java.util.Arrays;
+
+/**
+ * Obstacle-aware distances from one source cell to every cell of a grid, computed with a breadth-first search
+ * over the free cells and their four neighbors. Grids small enough for every distance to fit keep them
+ * in a short[], larger ones in an int[]. Fields are immutable once built and can be shared between threads,
+ * see {@link DistanceFieldCache}.
+ */
+public class GridDistanceField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final short SHORT_UNREACHABLE = -1;
+
+    private final int cols;
+    private final short[] shortDistances;
+    private final int[] distances;
+
+    public GridDistanceField(boolean[][] restrictedCells, int rows, int cols, int sourceRow, int sourceCol) {
+        this(GridFingerprint.of(restrictedCells, rows, cols), sourceRow, sourceCol);
+    }
+
+    public GridDistanceField(GridFingerprint grid, int sourceRow, int sourceCol) {
+        int rows = grid.getRows();
+        this.cols = grid.getCols();
+        int[] field = breadthFirstSearch(grid, rows, cols, sourceRow, sourceCol);
+        if (rows * cols <= Short.MAX_VALUE) {
+            // a distance is always smaller than the number of cells
+            shortDistances = new short[field.length];
+            for (int cell = 0; cell < field.length; cell++) {
+                shortDistances[cell] = field[cell] == UNREACHABLE ? SHORT_UNREACHABLE : (short) field[cell];
+            }
+            distances = null;
+        } else {
+            shortDistances = null;
+            distances = field;
+        }
+    }
+
+    private static int[] breadthFirstSearch(GridFingerprint grid, int rows, int cols, int sourceRow, int sourceCol) {
+        int[] distances = new int[rows * cols];
+        Arrays.fill(distances, UNREACHABLE);
+        if (grid.isRestricted(sourceRow, sourceCol)) {
+            return distances;
+        }
+        int[] queue = new int[rows * cols];
+        int head = 0, tail = 0;
+        int source = sourceRow * cols + sourceCol;
+        distances[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / cols, col = cell % cols;
+            int next = distances[cell] + 1;
+            if (row > 0 && !grid.isRestricted(row - 1, col) && distances[cell - cols] == UNREACHABLE) {
+                distances[cell - cols] = next;
+                queue[tail++] = cell - cols;
+            }
+            if (row < rows - 1 && !grid.isRestricted(row + 1, col) && distances[cell + cols] == UNREACHABLE) {
+                distances[cell + cols] = next;
+                queue[tail++] = cell + cols;
+            }
+            if (col > 0 && !grid.isRestricted(row, col - 1) && distances[cell - 1] == UNREACHABLE) {
+                distances[cell - 1] = next;
+                queue[tail++] = cell - 1;
+            }
+            if (col < cols - 1 && !grid.isRestricted(row, col + 1) && distances[cell + 1] == UNREACHABLE) {
+                distances[cell + 1] = next;
+                queue[tail++] = cell + 1;
+            }
+        }
+        return distances;
+    }
+
+    // Number of moves from the source to the cell, or UNREACHABLE
+    public int distance(int row, int col) {
+        int cell = row * cols + col;
+        if (shortDistances != null) {
+            short distance = shortDistances[cell];
+            return distance == SHORT_UNREACHABLE ? UNREACHABLE : distance;
+        }
+        return distances[cell];
+    }
+
+    // Bytes held by the distances, for memory accounting
+    public long sizeInBytes() {
+        return shortDistances != null ? (long) shortDistances.length * Short.BYTES : (long) distances.length * Integer.BYTES;
+    }
+}
@@ -0,0 +1,103 @@
+package csp.robot.utils;
+
+import csp.robot.models.BitPackedOccupancyGrid;
+import csp.robot.models.OccupancyGrid;
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a grid's restricted cells, packed one bit per cell, with a 64-bit hash of the dimensions
+ * and the bits. Two grids with the same map have equal fingerprints, so work derived from the map alone,
+ * such as distance fields, can be shared between them.
+ */
+public final class GridFingerprint {
+    private final int rows, cols;
+    private final long[] bits;
+    private final long hash;
+
+    private GridFingerprint(int rows, int cols, long[] bits) {
+        this.rows = rows;
+        this.cols = cols;
+        this.bits = bits;
+        long h = 0x9E3779B97F4A7C15L ^ ((long) rows << 32 | cols);
+        for (long word : bits) {
+            h = Long.rotateLeft(h ^ word, 27) * 0xC2B2AE3D27D4EB4FL;
+        }
+        this.hash = h ^ (h >>> 29);
+    }
+
+    public static GridFingerprint of(OccupancyGrid grid) {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        long[] bits = new long[BitPackedOccupancyGrid.wordCount(rows, cols)];
+        if (grid instanceof BitPackedOccupancyGrid) {
+            // same bit layout, copied a word at a time
+            BitPackedOccupancyGrid packed = (BitPackedOccupancyGrid) grid;
+            for (int index = 0; index < bits.length; index++) {
+                bits[index] = packed.getWord(index);
+            }
+            return new GridFingerprint(rows, cols, bits);
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (grid.isRestricted(row, col)) {
+                    long cell = (long) row * cols + col;
+                    bits[(int) (cell >>> 6)] |= 1L << cell;
+                }
+            }
+        }
+        return new GridFingerprint(rows, cols, bits);
+    }
+
+    public static GridFingerprint of(boolean[][] restrictedCells, int rows, int cols) {
+        long[] bits = new long[(rows * cols + Long.SIZE - 1) / Long.SIZE];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (restrictedCells[row][col]) {
+                    int cell = row * cols + col;
+                    bits[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+        return new GridFingerprint(rows, cols, bits);
+    }
+
+    public boolean isRestricted(int row, int col) {
+        int cell = row * cols + col;
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    // Bytes held by the snapshot, for memory accounting
+    long sizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GridFingerprint)) return false;
+        GridFingerprint other = (GridFingerprint) o;
+        return hash == other.hash && rows == other.rows && cols == other.cols && Arrays.equals(bits, other.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GridFingerprint{%dx%d, %016x}", rows, cols, hash);
+    }
+}
@@ -0,0 +1,136 @@
+package csp.robot.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Admissible lower bound on the moves a robot still needs to visit the targets it has not reached:
+ * the distance from its cell to the nearest unreached target plus the weight of a minimum spanning tree over
+ * the unreached targets, all with obstacle-aware distances. Any walk through the remaining targets starts with
+ * a walk to one of them and contains a spanning path over them, so it is at least that long.
+ * Distance fields come from a {@link DistanceFieldCache}, the tree weight is memoized per set of reached targets,
+ * keeping the MAX_MEMOIZED_TREES most recently used.
+ */
+public class TargetLowerBound {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    // reached sets are bit masks, targets past the first 64 are left out, which keeps the bound admissible
+    private static final int MAX_TARGETS = Long.SIZE;
+    private static final int MAX_MEMOIZED_TREES = 1 << 16;
+
+    private final int[][] targets;
+    private final GridDistanceField[] targetDistances;
+    // pairwise distances between targets
+    private final int[][] between;
+    // access ordered, so the least recently used tree is dropped first
+    private final Map<Long, Integer> treeWeightByReached = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > MAX_MEMOIZED_TREES;
+        }
+    };
+
+    public TargetLowerBound(GridFingerprint grid, int[][] targets) {
+        this(grid, targets, DistanceFieldCache.shared());
+    }
+
+    public TargetLowerBound(GridFingerprint grid, int[][] targets, DistanceFieldCache cache) {
+        int count = Math.min(targets.length, MAX_TARGETS);
+        this.targets = new int[count][];
+        this.targetDistances = new GridDistanceField[count];
+        for (int i = 0; i < count; i++) {
+            this.targets[i] = targets[i];
+            targetDistances[i] = cache.get(grid, targets[i][0], targets[i][1]);
+        }
+        this.between = new int[count][count];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < count; j++) {
+                between[i][j] = targetDistances[i].distance(targets[j][0], targets[j][1]);
+            }
+        }
+    }
+
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    // Bit i is set when target i is the given cell
+    public long targetMask(int row, int col) {
+        long mask = 0L;
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i][0] == row && targets[i][1] == col) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    public long allTargetsMask() {
+        return targets.length == MAX_TARGETS ? -1L : (1L << targets.length) - 1;
+    }
+
+    // Lower bound on the moves from the cell through every target not in reached, or UNBOUNDED if one can't be reached
+    public int lowerBound(int row, int col, long reached) {
+        long unreached = allTargetsMask() & ~reached;
+        if (unreached == 0L) {
+            return 0;
+        }
+        int nearest = UNBOUNDED;
+        for (long rest = unreached; rest != 0L; rest &= rest - 1) {
+            int i = Long.numberOfTrailingZeros(rest);
+            nearest = Math.min(nearest, targetDistances[i].distance(row, col));
+        }
+        if (nearest == UNBOUNDED) {
+            return UNBOUNDED;
+        }
+        int tree = treeWeight(unreached);
+        if (tree == UNBOUNDED) {
+            return UNBOUNDED;
+        }
+        long bound = (long) nearest + tree;
+        return bound >= UNBOUNDED ? UNBOUNDED : (int) bound;
+    }
+
+    private int treeWeight(long unreached) {
+        Integer weight = treeWeightByReached.get(unreached);
+        if (weight == null) {
+            weight = primTreeWeight(unreached);
+            treeWeightByReached.put(unreached, weight);
+        }
+        return weight;
+    }
+
+    // Prim's algorithm on the dense distance matrix restricted to the targets in the mask
+    private int primTreeWeight(long mask) {
+        int[] members = new int[Long.bitCount(mask)];
+        int n = 0;
+        for (long rest = mask; rest != 0L; rest &= rest - 1) {
+            members[n++] = Long.numberOfTrailingZeros(rest);
+        }
+        int[] cost = new int[n];
+        boolean[] inTree = new boolean[n];
+        for (int i = 1; i < n; i++) {
+            cost[i] = between[members[0]][members[i]];
+        }
+        inTree[0] = true;
+        long total = 0;
+        for (int added = 1; added < n; added++) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i] && (next == -1 || cost[i] < cost[next])) {
+                    next = i;
+                }
+            }
+            if (cost[next] == GridDistanceField.UNREACHABLE) {
+                return UNBOUNDED;
+            }
+            total += cost[next];
+            inTree[next] = true;
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i]) {
+                    cost[i] = Math.min(cost[i], between[members[next]][members[i]]);
+                }
+            }
+        }
+        return total >= UNBOUNDED ? UNBOUNDED : (int) total;
+    }
+}